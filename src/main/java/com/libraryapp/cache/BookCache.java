@@ -0,0 +1,100 @@
+package com.libraryapp.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.libraryapp.dto.book.BookResponseDto;
+import com.libraryapp.event.BookChangedEvent;
+import com.libraryapp.repository.support.BookFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+
+@Component
+public class BookCache {
+
+    private static final String BOOKS_CACHE_NAME = "books";
+    private static final String PAGES_CACHE_NAME = "bookPages";
+
+    private final boolean enabled;
+    private final int cachedPages;
+    // Book id -> non-deleted book
+    private final Cache<String, BookResponseDto> books;
+    // Generation, filter, fields, page number, size and sort of one of the first pages -> its books
+    private final Cache<String, List<BookResponseDto>> pages;
+    // Bumped on every change; invalidateAll() doesn't reach loads still in flight, so a page
+    // read before the change is stored under a key no later request asks for
+    private final AtomicLong generation = new AtomicLong();
+
+    public BookCache(
+            MeterRegistry meterRegistry,
+            @Value("${catalog.cache.enabled}") boolean enabled,
+            @Value("${catalog.cache.maximum-size}") long maximumSize,
+            @Value("${catalog.cache.ttl-seconds}") long ttlSeconds,
+            @Value("${catalog.cache.cached-pages}") int cachedPages) {
+        this.enabled = enabled;
+        this.cachedPages = cachedPages;
+        books = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        pages = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, books, BOOKS_CACHE_NAME);
+        CaffeineCacheMetrics.monitor(meterRegistry, pages, PAGES_CACHE_NAME);
+    }
+
+    // The loader returns null for missing books, which is not cached
+    public BookResponseDto getById(String id, Function<String, BookResponseDto> loader) {
+        return enabled ? books.get(id, loader) : loader.apply(id);
+    }
+
+    // Only the ids that aren't cached reach the loader, in one call; missing books are left out
+    public Map<String, BookResponseDto> getAllById(
+            Collection<String> ids,
+            Function<Set<String>, Map<String, BookResponseDto>> loader) {
+        if (!enabled) {
+            return loader.apply(new LinkedHashSet<>(ids));
+        }
+
+        return books.getAll(ids, missingIds -> loader.apply(Set.copyOf(missingIds)));
+    }
+
+    public List<BookResponseDto> getPage(
+            BookFilter filter,
+            Set<String> fields,
+            Pageable pageable,
+            Function<Pageable, List<BookResponseDto>> loader) {
+        if (!enabled || pageable.isUnpaged() || pageable.getPageNumber() >= cachedPages) {
+            return loader.apply(pageable);
+        }
+
+        String key = generation.get() + ":" + filter + ":" + new TreeSet<>(fields)
+                + ":" + pageable.getPageNumber() + ":" + pageable.getPageSize()
+                + ":" + pageable.getSort();
+        return pages.get(key, page -> loader.apply(pageable));
+    }
+
+    @EventListener
+    public void onBookChanged(BookChangedEvent event) {
+        books.invalidate(event.bookId());
+        // Any change can move books between pages, and there are only a few pages cached
+        generation.incrementAndGet();
+        pages.invalidateAll();
+    }
+}
@@ -0,0 +1,160 @@
+package com.libraryapp.cache;
+
+import com.libraryapp.dto.book.BookFacetsDto;
+import com.libraryapp.dto.book.FacetCountDto;
+import com.libraryapp.event.BookCountsChangedEvent;
+import com.libraryapp.repository.BookRepository;
+import com.libraryapp.repository.support.BookFacetCounts;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+// Facet counts are aggregated once, then kept current by the local writes. Writes on other
+// nodes, and authors climbing into the top from outside the tracked ones, only show after
+// the next scheduled recount. The change stream can't help there, it only names the book.
+@Slf4j
+@Component
+public class BookFacetsCache {
+
+    // More authors are tracked than shown, so a few decrements don't empty the top
+    private static final int TRACKED_AUTHORS_FACTOR = 4;
+    private static final String NAME = "bookFacets";
+    private static final Comparator<FacetCountDto> BY_COUNT = Comparator
+            .comparingLong(FacetCountDto::count).reversed()
+            .thenComparing(FacetCountDto::value);
+
+    private final BookRepository bookRepository;
+    private final boolean enabled;
+    private final int topAuthors;
+    // The aggregation scans every book, concurrent requests for it share one run
+    private final SingleFlight<Integer, BookFacetCounts> aggregations;
+
+    // Guarded by this, null until the facets are first asked for
+    private Map<String, Long> categories;
+    private Map<String, Long> authors;
+    private long books;
+    private long borrowedBooks;
+
+    public BookFacetsCache(
+            BookRepository bookRepository,
+            MeterRegistry meterRegistry,
+            @Value("${catalog.facets.cache-enabled}") boolean enabled,
+            @Value("${catalog.facets.top-authors}") int topAuthors) {
+        this.bookRepository = bookRepository;
+        this.enabled = enabled;
+        this.topAuthors = topAuthors;
+        aggregations = new SingleFlight<>(meterRegistry, NAME);
+    }
+
+    public BookFacetsDto getFacets() {
+        if (!enabled) {
+            BookFacetCounts counts = countFacets();
+            return toFacets(counts.categories(), counts.authors(),
+                    counts.books(), counts.borrowedBooks());
+        }
+
+        synchronized (this) {
+            if (categories != null) {
+                return getCachedFacets();
+            }
+        }
+
+        // Aggregated outside the lock, so writes adjusting the counts don't queue behind it
+        BookFacetCounts counts = countFacets();
+        synchronized (this) {
+            if (categories == null) {
+                setCounts(counts);
+            }
+            return getCachedFacets();
+        }
+    }
+
+    @Scheduled(cron = "${catalog.facets.refresh-cron}")
+    public void refresh() {
+        synchronized (this) {
+            if (!enabled || categories == null) {
+                return;
+            }
+        }
+
+        try {
+            // Counted outside the lock, changes made meanwhile are corrected by the next one
+            BookFacetCounts counts = countFacets();
+            synchronized (this) {
+                setCounts(counts);
+            }
+        } catch (DataAccessException e) {
+            log.warn("Could not recount the book facets", e);
+        }
+    }
+
+    @EventListener
+    public synchronized void onBookCountsChanged(BookCountsChangedEvent event) {
+        if (categories == null) {
+            return;
+        }
+
+        if (event.category() != null) {
+            adjust(categories, event.category(), event.books());
+        }
+        // Authors outside the top can't be counted from here
+        if (event.author() != null && authors.containsKey(event.author())) {
+            adjust(authors, event.author(), event.books());
+        }
+        books += event.books();
+        borrowedBooks += event.borrowedBooks();
+    }
+
+    private BookFacetCounts countFacets() {
+        return aggregations.execute(
+                topAuthors * TRACKED_AUTHORS_FACTOR, bookRepository::countFacets);
+    }
+
+    private BookFacetsDto getCachedFacets() {
+        return toFacets(categories, authors, books, borrowedBooks);
+    }
+
+    private BookFacetsDto toFacets(
+            Map<String, Long> categoryCounts,
+            Map<String, Long> authorCounts,
+            long bookCount,
+            long borrowedBookCount) {
+        return new BookFacetsDto(
+                toFacetCounts(categoryCounts, categoryCounts.size()),
+                toFacetCounts(authorCounts, topAuthors),
+                bookCount - borrowedBookCount,
+                borrowedBookCount);
+    }
+
+    private void setCounts(BookFacetCounts counts) {
+        categories = new HashMap<>(counts.categories());
+        authors = new HashMap<>(counts.authors());
+        books = counts.books();
+        borrowedBooks = counts.borrowedBooks();
+    }
+
+    private static void adjust(Map<String, Long> counts, String value, long delta) {
+        long count = counts.getOrDefault(value, 0L) + delta;
+        if (count > 0) {
+            counts.put(value, count);
+        } else {
+            counts.remove(value);
+        }
+    }
+
+    private static List<FacetCountDto> toFacetCounts(Map<String, Long> counts, int limit) {
+        return counts.entrySet().stream()
+                .map(entry -> new FacetCountDto(entry.getKey(), entry.getValue()))
+                .sorted(BY_COUNT)
+                .limit(limit)
+                .toList();
+    }
+}
@@ -0,0 +1,27 @@
+package com.libraryapp.cache;
+
+import com.libraryapp.model.Book;
+import com.libraryapp.repository.BookRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Optional;
+import org.springframework.stereotype.Component;
+
+// A hot title can be requested thousands of times at once; those reads share one query.
+// Callers get the same Book instance, so it must only be read, never modified.
+@Component
+public class BookLookupCoalescer {
+
+    private static final String NAME = "bookLookups";
+
+    private final BookRepository bookRepository;
+    private final SingleFlight<String, Optional<Book>> lookups;
+
+    public BookLookupCoalescer(BookRepository bookRepository, MeterRegistry meterRegistry) {
+        this.bookRepository = bookRepository;
+        lookups = new SingleFlight<>(meterRegistry, NAME);
+    }
+
+    public Optional<Book> findById(String id) {
+        return lookups.execute(id, bookRepository::findById);
+    }
+}
@@ -0,0 +1,243 @@
+package com.libraryapp.cache;
+
+import com.libraryapp.event.BookChangedEvent;
+import com.libraryapp.event.LoanChangedEvent;
+import com.libraryapp.event.UserChangedEvent;
+import com.libraryapp.model.Book;
+import com.libraryapp.model.Loan;
+import com.libraryapp.model.User;
+import com.mongodb.MongoCommandException;
+import com.mongodb.MongoException;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import jakarta.annotation.PreDestroy;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+// Turns writes made by any node into the local change events, so near caches see them
+// without waiting for their TTL. Needs a replica set; without one the TTLs are all there is.
+@Slf4j
+@Component
+public class ChangeStreamInvalidator {
+
+    private static final String RESUME_TOKENS_COLLECTION = "resumeTokens";
+    private static final Set<String> WATCHED_OPERATIONS =
+            Set.of("insert", "update", "replace", "delete");
+    // ChangeStreamHistoryLost and ChangeStreamFatalError: the token can't be resumed from
+    private static final Set<Integer> LOST_HISTORY_ERRORS = Set.of(286, 280);
+
+    private final MongoTemplate mongoTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean enabled;
+    private final String nodeId;
+    private final long tokenSaveIntervalMillis;
+    private final long retryDelayMillis;
+    private final String booksCollection;
+    private final String loansCollection;
+    private final String usersCollection;
+
+    private volatile Thread watcher;
+    private volatile boolean running;
+    private BsonDocument resumeToken;
+    private long lastTokenSave;
+
+    public ChangeStreamInvalidator(
+            MongoTemplate mongoTemplate,
+            ApplicationEventPublisher eventPublisher,
+            @Value("${cache.invalidation.change-streams.enabled}") boolean enabled,
+            @Value("${cache.invalidation.node-id}") String nodeId,
+            @Value("${cache.invalidation.token-save-interval-millis}") long tokenSaveIntervalMillis,
+            @Value("${cache.invalidation.retry-delay-millis}") long retryDelayMillis) {
+        this.mongoTemplate = mongoTemplate;
+        this.eventPublisher = eventPublisher;
+        this.enabled = enabled;
+        this.nodeId = nodeId;
+        this.tokenSaveIntervalMillis = tokenSaveIntervalMillis;
+        this.retryDelayMillis = retryDelayMillis;
+        booksCollection = mongoTemplate.getCollectionName(Book.class);
+        loansCollection = mongoTemplate.getCollectionName(Loan.class);
+        usersCollection = mongoTemplate.getCollectionName(User.class);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (!enabled || running) {
+            return;
+        }
+
+        running = true;
+        watcher = new Thread(this::watch, "change-stream-invalidator");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    @PreDestroy
+    public synchronized void stop() throws InterruptedException {
+        if (!running) {
+            return;
+        }
+
+        running = false;
+        watcher.join();
+    }
+
+    // Only a successful hello decides; elections and network blips at startup are retried
+    private boolean isReplicaSet() {
+        while (running) {
+            try {
+                Document hello = mongoTemplate.getDb().runCommand(new Document("hello", 1));
+                // A replica set member reports its set name, a mongos reports "isdbgrid"
+                return hello.containsKey("setName") || "isdbgrid".equals(hello.getString("msg"));
+            } catch (MongoException e) {
+                log.warn("Could not determine the deployment type, retrying in {} ms",
+                        retryDelayMillis, e);
+                sleep(retryDelayMillis);
+            }
+        }
+
+        return false;
+    }
+
+    private void watch() {
+        // Checked on the watcher thread, so an unreachable server can't hold up startup
+        if (!isReplicaSet()) {
+            if (running) {
+                log.info("Change streams need a replica set, caches fall back to their TTL");
+                running = false;
+            }
+            return;
+        }
+
+        resumeToken = loadResumeToken();
+        while (running) {
+            try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = openStream()) {
+                while (running) {
+                    ChangeStreamDocument<Document> change = cursor.tryNext();
+                    if (change != null) {
+                        publishSafely(change);
+                    }
+                    // Advances even without changes, so resuming doesn't replay old batches
+                    if (cursor.getResumeToken() != null) {
+                        resumeToken = cursor.getResumeToken();
+                    }
+                    saveResumeToken(false);
+                }
+                saveResumeToken(true);
+            } catch (MongoException e) {
+                handleFailure(e);
+            }
+        }
+    }
+
+    private MongoChangeStreamCursor<ChangeStreamDocument<Document>> openStream() {
+        Bson filter = Filters.and(
+                Filters.in("ns.coll", booksCollection, loansCollection, usersCollection),
+                Filters.in("operationType", WATCHED_OPERATIONS));
+        // Users and loans are cached by fields other than their id, so updates need them
+        ChangeStreamIterable<Document> stream = mongoTemplate.getDb()
+                .watch(List.of(Aggregates.match(filter)))
+                .fullDocument(FullDocument.UPDATE_LOOKUP)
+                .maxAwaitTime(1, TimeUnit.SECONDS);
+
+        return resumeToken == null
+                ? stream.cursor()
+                : stream.resumeAfter(resumeToken).cursor();
+    }
+
+    private void publishSafely(ChangeStreamDocument<Document> change) {
+        try {
+            publish(change);
+        } catch (RuntimeException e) {
+            // One unreadable document must not stop the stream
+            log.warn("Could not apply change {}", change.getDocumentKey(), e);
+        }
+    }
+
+    private void publish(ChangeStreamDocument<Document> change) {
+        String collection = change.getNamespace().getCollectionName();
+        if (booksCollection.equals(collection)) {
+            BsonValue id = change.getDocumentKey().get("_id");
+            eventPublisher.publishEvent(new BookChangedEvent(id.isObjectId()
+                    ? id.asObjectId().getValue().toHexString()
+                    : id.asString().getValue()));
+            return;
+        }
+
+        Document document = change.getFullDocument();
+        // Hard deletes carry no document; the entries they affect expire by TTL
+        if (document == null) {
+            return;
+        }
+        if (usersCollection.equals(collection)) {
+            User user = mongoTemplate.getConverter().read(User.class, document);
+            eventPublisher.publishEvent(new UserChangedEvent(user));
+        } else if (loansCollection.equals(collection)) {
+            eventPublisher.publishEvent(new LoanChangedEvent(document.getString("customerId")));
+        }
+    }
+
+    private void handleFailure(MongoException e) {
+        if (e instanceof MongoCommandException commandException
+                && LOST_HISTORY_ERRORS.contains(commandException.getErrorCode())) {
+            // The oplog no longer reaches back to the token, so changes in between are lost
+            // and the affected entries are only corrected by their TTL
+            log.warn("Change stream history lost, restarting from the current time", e);
+            resumeToken = null;
+        } else {
+            log.warn("Change stream failed, resuming in {} ms", retryDelayMillis, e);
+            sleep(retryDelayMillis);
+        }
+    }
+
+    private BsonDocument loadResumeToken() {
+        BsonDocument stored = mongoTemplate.getDb()
+                .getCollection(RESUME_TOKENS_COLLECTION, BsonDocument.class)
+                .find(Filters.eq("_id", nodeId))
+                .first();
+
+        return stored == null ? null : stored.getDocument("token");
+    }
+
+    // Saving every token would double the writes, a restarted node replays a few instead
+    private void saveResumeToken(boolean force) {
+        long now = System.currentTimeMillis();
+        if (resumeToken == null || (!force && now - lastTokenSave < tokenSaveIntervalMillis)) {
+            return;
+        }
+
+        mongoTemplate.getCollection(RESUME_TOKENS_COLLECTION).replaceOne(
+                Filters.eq("_id", nodeId),
+                new Document("_id", nodeId)
+                        .append("token", resumeToken)
+                        .append("updatedAt", Date.from(Instant.ofEpochMilli(now))),
+                new ReplaceOptions().upsert(true));
+        lastTokenSave = now;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.libraryapp.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.libraryapp.event.LoanChangedEvent;
+import com.libraryapp.repository.LoanRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+@Component
+public class LoanCountCache {
+
+    private static final String CACHE_NAME = "loanCounts";
+    private static final String ALL_LOANS_KEY = "*";
+
+    private final LoanRepository loanRepository;
+    // Customer id (or "*" for all loans) -> number of non-deleted loans, allowed to lag behind
+    private final Cache<String, Long> loanCounts;
+
+    public LoanCountCache(
+            LoanRepository loanRepository,
+            MeterRegistry meterRegistry,
+            @Value("${loans.count-cache.maximum-size}") long maximumSize,
+            @Value("${loans.count-cache.ttl-seconds}") long ttlSeconds) {
+        this.loanRepository = loanRepository;
+        loanCounts = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, loanCounts, CACHE_NAME);
+    }
+
+    public long countAll() {
+        return loanCounts.get(ALL_LOANS_KEY, key -> loanRepository.countByIsDeletedFalse());
+    }
+
+    public long countByCustomerId(String customerId) {
+        return loanCounts.get(customerId, loanRepository::countByCustomerIdAndIsDeletedFalse);
+    }
+
+    @EventListener
+    public void onLoanChanged(LoanChangedEvent event) {
+        loanCounts.invalidate(event.customerId());
+        loanCounts.invalidate(ALL_LOANS_KEY);
+    }
+}
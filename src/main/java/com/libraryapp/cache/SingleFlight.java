@@ -0,0 +1,60 @@
+package com.libraryapp.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+// Lets concurrent calls for the same key share one execution, its result and its exception
+public class SingleFlight<K, V> {
+
+    private static final String COUNTER_NAME = "single.flight.collapsed";
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlightCalls = new ConcurrentHashMap<>();
+    private final Counter collapsedCalls;
+
+    public SingleFlight(MeterRegistry meterRegistry, String name) {
+        collapsedCalls = Counter.builder(COUNTER_NAME)
+                .tag("name", name)
+                .description("Calls that waited for an identical call already in flight")
+                .register(meterRegistry);
+    }
+
+    public V execute(K key, Function<K, V> call) {
+        CompletableFuture<V> ownCall = new CompletableFuture<>();
+        CompletableFuture<V> inFlightCall = inFlightCalls.putIfAbsent(key, ownCall);
+        if (inFlightCall != null) {
+            collapsedCalls.increment();
+            return join(inFlightCall);
+        }
+
+        try {
+            V result = call.apply(key);
+            ownCall.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            ownCall.completeExceptionally(e);
+            throw e;
+        } finally {
+            // Later calls start a new execution instead of reusing this result
+            inFlightCalls.remove(key, ownCall);
+        }
+    }
+
+    private V join(CompletableFuture<V> inFlightCall) {
+        try {
+            return inFlightCall.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -1,27 +1,53 @@
 package com.libraryapp.config;
 
 import com.libraryapp.model.Book;
+import com.libraryapp.model.Loan;
 import com.libraryapp.model.User;
 import com.libraryapp.repository.BookRepository;
 import com.libraryapp.repository.UserRepository;
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoWriteException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import java.util.Date;
 import java.util.List;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+@Slf4j
 @Configuration
 @RequiredArgsConstructor
 public class DataInitializer {
 
+    private static final String MIGRATIONS_COLLECTION = "migrations";
+    private static final String INITIALIZE_MISSING_FIELDS_MIGRATION = "initialize-missing-fields";
+
     private final BookRepository bookRepository;
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final MongoTemplate mongoTemplate;
 
     @Bean
     public CommandLineRunner initializeData() {
         return args -> {
+            migrateOnce(INITIALIZE_MISSING_FIELDS_MIGRATION, () -> {
+                // Documents written before versioning was introduced start at version 0,
+                // otherwise saving them would be mistaken for an insert
+                List.of(Book.class, Loan.class, User.class).forEach(this::initializeVersions);
+                // Books created through the API used to be stored without their flags
+                initializeMissingField(Book.class, "isBorrowed", false);
+                initializeMissingField(Book.class, "isDeleted", false);
+            });
+
             // Add sample books and a manager account only if database is empty
             List<Book> books = List.of(
                     Book.builder().title("Dune").author("F. Herbert")
@@ -62,4 +88,36 @@ public class DataInitializer {
             }
         };
     }
+
+    // The marker keeps unindexed backfills off every later startup. Migrations must be
+    // idempotent, since nodes starting together may both run one before either records it.
+    private void migrateOnce(String migrationId, Runnable migration) {
+        MongoCollection<Document> migrations =
+                mongoTemplate.getCollection(MIGRATIONS_COLLECTION);
+        if (migrations.find(Filters.eq("_id", migrationId)).first() != null) {
+            return;
+        }
+
+        migration.run();
+        try {
+            migrations.insertOne(new Document("_id", migrationId)
+                    .append("appliedAt", new Date()));
+            log.info("Applied migration {}", migrationId);
+        } catch (MongoWriteException e) {
+            if (e.getError().getCategory() != ErrorCategory.DUPLICATE_KEY) {
+                throw e;
+            }
+        }
+    }
+
+    private void initializeVersions(Class<?> documentClass) {
+        initializeMissingField(documentClass, "version", 0L);
+    }
+
+    private void initializeMissingField(Class<?> documentClass, String field, Object value) {
+        mongoTemplate.updateMulti(
+                Query.query(Criteria.where(field).exists(false)),
+                Update.update(field, value),
+                documentClass);
+    }
 }
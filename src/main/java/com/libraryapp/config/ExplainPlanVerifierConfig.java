@@ -0,0 +1,30 @@
+package com.libraryapp.config;
+
+import com.libraryapp.repository.support.ExplainPlanVerifier;
+import com.mongodb.client.MongoClient;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// Explaining queries costs an extra round trip per new query shape, so it can be switched off
+@Configuration
+@ConditionalOnProperty(name = "mongodb.explain-verifier.enabled", havingValue = "true")
+public class ExplainPlanVerifierConfig {
+
+    @Bean
+    public ExplainPlanVerifier explainPlanVerifier(
+            ObjectProvider<MongoClient> mongoClientProvider,
+            @Value("${mongodb.explain-verifier.maximum-shapes}") long maximumShapes,
+            @Value("${mongodb.explain-verifier.queue-capacity}") int queueCapacity) {
+        return new ExplainPlanVerifier(mongoClientProvider, maximumShapes, queueCapacity);
+    }
+
+    @Bean
+    public MongoClientSettingsBuilderCustomizer explainPlanVerifierCustomizer(
+            ExplainPlanVerifier explainPlanVerifier) {
+        return settings -> settings.addCommandListener(explainPlanVerifier);
+    }
+}
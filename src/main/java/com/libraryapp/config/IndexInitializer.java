@@ -0,0 +1,73 @@
+package com.libraryapp.config;
+
+import com.libraryapp.model.Book;
+import com.libraryapp.model.Loan;
+import com.libraryapp.model.User;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+// Creates the indexes declared on the documents, since automatic index creation is off
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class IndexInitializer {
+
+    private static final List<Class<?>> DOCUMENT_CLASSES =
+            List.of(Book.class, Loan.class, User.class);
+
+    private final MongoTemplate mongoTemplate;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initializeIndexes() {
+        // Index builds can take a while on large collections, so they must not delay startup.
+        // They block, so they get their own thread instead of one of the common pool.
+        CustomizableThreadFactory threadFactory =
+                new CustomizableThreadFactory("index-initializer-");
+        threadFactory.setDaemon(true);
+        ExecutorService executor = Executors.newSingleThreadExecutor(threadFactory);
+        executor.execute(this::ensureIndexesLogged);
+        // The thread ends once the indexes are built
+        executor.shutdown();
+    }
+
+    private void ensureIndexesLogged() {
+        try {
+            ensureIndexes();
+        } catch (RuntimeException e) {
+            log.error("Could not ensure the declared indexes", e);
+        }
+    }
+
+    public void ensureIndexes() {
+        DOCUMENT_CLASSES.forEach(this::ensureIndexes);
+    }
+
+    private void ensureIndexes(Class<?> documentClass) {
+        IndexResolver indexResolver = IndexResolver.create(mongoTemplate.getConverter()
+                .getMappingContext());
+        IndexOperations indexOperations = mongoTemplate.indexOps(documentClass);
+
+        for (IndexDefinition index : indexResolver.resolveIndexFor(documentClass)) {
+            try {
+                // No-op when an index with the same keys and options already exists
+                indexOperations.ensureIndex(index);
+            } catch (RuntimeException e) {
+                // e.g. duplicate emails stored before the unique index existed; the other
+                // indexes are still created
+                log.error("Could not create index {} on {}",
+                        index.getIndexOptions(), documentClass.getSimpleName(), e);
+            }
+        }
+    }
+}
@@ -1,18 +1,21 @@
 package com.libraryapp.config;
 
+import com.libraryapp.security.CachingAuthenticationProvider;
+import com.libraryapp.security.HttpBasicAuthenticationEntryPoint;
 import com.libraryapp.security.JwtAuthenticationFilter;
+import com.libraryapp.security.VerifiedCredentialsCache;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.config.Customizer;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.core.userdetails.UserDetailsService;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
@@ -24,11 +27,9 @@ public class SecurityConfig {
 
     private final UserDetailsService userDetailsService;
     private final JwtAuthenticationFilter jwtAuthenticationFilter;
-
-    @Bean
-    public PasswordEncoder getPasswordEncoder() {
-        return new BCryptPasswordEncoder();
-    }
+    private final VerifiedCredentialsCache verifiedCredentialsCache;
+    private final PasswordEncoder passwordEncoder;
+    private final HttpBasicAuthenticationEntryPoint httpBasicAuthenticationEntryPoint;
 
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity httpSecurity) throws Exception {
@@ -43,15 +44,18 @@ public class SecurityConfig {
                                         "/health",
                                         "/error")
                                 .permitAll()
+                                .requestMatchers("/actuator/**")
+                                .hasRole("MANAGER")
                                 .anyRequest()
                                 .authenticated()
                 )
-                .httpBasic(Customizer.withDefaults())
+                .httpBasic(basic ->
+                        basic.authenticationEntryPoint(httpBasicAuthenticationEntryPoint))
                 .sessionManagement(session ->
                         session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .addFilterBefore(jwtAuthenticationFilter,
                         UsernamePasswordAuthenticationFilter.class)
-                .userDetailsService(userDetailsService)
+                .authenticationProvider(getBasicAuthenticationProvider())
                 .build();
     }
 
@@ -60,4 +64,14 @@ public class SecurityConfig {
             AuthenticationConfiguration authenticationConfiguration) throws Exception {
         return authenticationConfiguration.getAuthenticationManager();
     }
+
+    private AuthenticationProvider getBasicAuthenticationProvider() {
+        // Repeated HTTP Basic calls skip the password hash once the credentials were verified
+        DaoAuthenticationProvider daoAuthenticationProvider =
+                new DaoAuthenticationProvider(passwordEncoder);
+        daoAuthenticationProvider.setUserDetailsService(userDetailsService);
+
+        return new CachingAuthenticationProvider(
+                daoAuthenticationProvider, verifiedCredentialsCache);
+    }
 }
@@ -1,14 +1,22 @@
 package com.libraryapp.controller;
 
+import com.libraryapp.controller.util.CursorPageUtil;
+import com.libraryapp.controller.util.ETagUtil;
+import com.libraryapp.dto.BatchGetRequestDto;
+import com.libraryapp.dto.book.BookBatchResponseDto;
+import com.libraryapp.dto.book.BookFacetsDto;
 import com.libraryapp.dto.book.BookRequestDto;
 import com.libraryapp.dto.book.BookResponseDto;
+import com.libraryapp.repository.support.BookFilter;
 import com.libraryapp.service.BookService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import java.util.List;
+import java.util.Set;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -18,7 +26,9 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -32,19 +42,91 @@ public class BookController {
     private final BookService bookService;
 
     @Operation(summary = "Retrieve all books",
-            description = "Get a list of all books with optional pagination.")
+            description = "Get a list of all books with optional pagination. "
+                    + "Filter by category, author or availability, alone or as category "
+                    + "and availability, and sort by title, except availability alone; "
+                    + "unfiltered lists also sort by author. Pass an empty cursor to page "
+                    + "by keys instead of offsets, then follow the X-Next-Cursor header. "
+                    + "List fields, e.g. fields=id,title, to get only those.")
     @GetMapping
     @PreAuthorize("hasAnyRole('CUSTOMER', 'MANAGER')")
-    public List<BookResponseDto> findAll(Pageable pageable) {
-        return bookService.findAll(pageable);
+    public ResponseEntity<List<BookResponseDto>> findAll(
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String author,
+            @RequestParam(required = false) Boolean available,
+            Pageable pageable,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "") Set<String> fields) {
+        BookFilter filter = new BookFilter(category, author, available);
+        if (cursor == null) {
+            return ResponseEntity.ok(bookService.findAll(filter, fields, pageable));
+        }
+
+        return CursorPageUtil.toResponse(
+                bookService.findAll(filter, fields, cursor, pageable));
+    }
+
+    @Operation(summary = "Search books",
+            description = "Find books by words of their title, author or category, "
+                    + "best matches first. Set fuzzy to also match misspelled words. "
+                    + "Follow the X-Next-Cursor header for more results. "
+                    + "List fields, e.g. fields=id,title, to get only those.")
+    @GetMapping("/search")
+    @PreAuthorize("hasAnyRole('CUSTOMER', 'MANAGER')")
+    public ResponseEntity<List<BookResponseDto>> search(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "false") boolean fuzzy,
+            Pageable pageable,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "") Set<String> fields) {
+        return CursorPageUtil.toResponse(
+                bookService.search(q, fuzzy, fields, cursor, pageable));
+    }
+
+    @Operation(summary = "Suggest titles and authors",
+            description = "Get the most borrowed titles and authors starting with a prefix, "
+                    + "for suggestions while typing.")
+    @GetMapping("/suggest")
+    @PreAuthorize("hasAnyRole('CUSTOMER', 'MANAGER')")
+    public List<String> suggest(@RequestParam String prefix) {
+        return bookService.suggest(prefix);
+    }
+
+    @Operation(summary = "Count books by facet",
+            description = "Get the number of books per category, the top authors and how many "
+                    + "books are available or borrowed.")
+    @GetMapping("/facets")
+    @PreAuthorize("hasAnyRole('CUSTOMER', 'MANAGER')")
+    public BookFacetsDto getFacets() {
+        return bookService.getFacets();
+    }
+
+    @Operation(summary = "Retrieve books by IDs",
+            description = "Get up to 100 books by their IDs, in the order asked for. "
+                    + "IDs of books that don't exist are listed in missingIds.")
+    @GetMapping(params = "ids")
+    @PreAuthorize("hasAnyRole('CUSTOMER', 'MANAGER')")
+    public BookBatchResponseDto findAllById(@RequestParam List<String> ids) {
+        return bookService.findAllById(ids);
+    }
+
+    @Operation(summary = "Retrieve books by IDs in the body",
+            description = "Same as listing ids on GET /books, for lists too long for a URL.")
+    @PostMapping("/batch-get")
+    @PreAuthorize("hasAnyRole('CUSTOMER', 'MANAGER')")
+    public BookBatchResponseDto batchGet(@RequestBody @Valid BatchGetRequestDto request) {
+        return bookService.findAllById(request.ids());
     }
 
     @Operation(summary = "Retrieve a book by ID",
             description = "Get details of a specific book by its ID.")
     @GetMapping("/{id}")
     @PreAuthorize("hasAnyRole('CUSTOMER', 'MANAGER')")
-    public BookResponseDto findById(@PathVariable String id) {
-        return bookService.findById(id);
+    public ResponseEntity<BookResponseDto> findById(@PathVariable String id) {
+        BookResponseDto book = bookService.findById(id);
+        return ResponseEntity.ok()
+                .eTag(ETagUtil.toETag(book.version()))
+                .body(book);
     }
 
     @Operation(summary = "Add a new book",
@@ -66,12 +148,18 @@ public class BookController {
     }
 
     @Operation(summary = "Update book by ID",
-            description = "Update book's details. Can only be performed by a manager.")
+            description = "Update book's details. Can only be performed by a manager. "
+                    + "Pass the book's ETag in If-Match to reject concurrent changes.")
     @PutMapping("/{id}")
     @PreAuthorize("hasRole('MANAGER')")
-    public BookResponseDto updateById(
+    public ResponseEntity<BookResponseDto> updateById(
             @PathVariable String id,
-            @RequestBody @Valid BookRequestDto bookRequestDto) {
-        return bookService.updateById(id, bookRequestDto);
+            @RequestBody @Valid BookRequestDto bookRequestDto,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        BookResponseDto book = bookService.updateById(
+                id, bookRequestDto, ETagUtil.parseIfMatch(ifMatch));
+        return ResponseEntity.ok()
+                .eTag(ETagUtil.toETag(book.version()))
+                .body(book);
     }
 }
@@ -1,5 +1,9 @@
 package com.libraryapp.controller;
 
+import com.libraryapp.controller.util.CursorPageUtil;
+import com.libraryapp.controller.util.ETagUtil;
+import com.libraryapp.dto.BatchGetRequestDto;
+import com.libraryapp.dto.loan.LoanBatchResponseDto;
 import com.libraryapp.dto.loan.LoanRequestDto;
 import com.libraryapp.dto.loan.LoanResponseDto;
 import com.libraryapp.service.LoanService;
@@ -7,8 +11,10 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import java.util.List;
+import java.util.Set;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -18,7 +24,9 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -29,22 +37,69 @@ import org.springframework.web.bind.annotation.RestController;
 @RequestMapping(value = "/loans")
 public class LoanController {
 
+    private static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+
     private final LoanService loanService;
 
     @Operation(summary = "Get all loans",
-            description = "Retrieve a paginated list of all loans.")
+            description = "Retrieve a paginated list of all loans. "
+                    + "Pass an empty cursor to page by keys instead of offsets, "
+                    + "then follow the X-Next-Cursor header. "
+                    + "Set withTotal to get an approximate X-Total-Count header. "
+                    + "List fields, e.g. fields=id,bookId, to get only those. "
+                    + "Set expand=book,customer to embed the borrowed book and the customer.")
     @GetMapping
     @PreAuthorize("hasAnyRole('CUSTOMER', 'MANAGER')")
-    public List<LoanResponseDto> findAll(Pageable pageable) {
-        return loanService.findAll(pageable);
+    public ResponseEntity<List<LoanResponseDto>> findAll(
+            Pageable pageable,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false") boolean withTotal,
+            @RequestParam(defaultValue = "") Set<String> fields,
+            @RequestParam(defaultValue = "") Set<String> expand) {
+        ResponseEntity<List<LoanResponseDto>> loans = cursor == null
+                ? ResponseEntity.ok(loanService.findAll(fields, expand, pageable))
+                : CursorPageUtil.toResponse(
+                        loanService.findAll(fields, expand, cursor, pageable));
+        if (!withTotal) {
+            return loans;
+        }
+
+        return ResponseEntity.ok()
+                .headers(loans.getHeaders())
+                .header(TOTAL_COUNT_HEADER, String.valueOf(loanService.countAll()))
+                .body(loans.getBody());
+    }
+
+    @Operation(summary = "Get loans by IDs",
+            description = "Retrieve up to 100 loans by their IDs, in the order asked for. "
+                    + "IDs of loans that don't exist or belong to another customer "
+                    + "are listed in missingIds.")
+    @GetMapping(params = "ids")
+    @PreAuthorize("hasAnyRole('CUSTOMER', 'MANAGER')")
+    public LoanBatchResponseDto findAllById(@RequestParam List<String> ids) {
+        return loanService.findAllById(ids);
+    }
+
+    @Operation(summary = "Get loans by IDs in the body",
+            description = "Same as listing ids on GET /loans, for lists too long for a URL.")
+    @PostMapping("/batch-get")
+    @PreAuthorize("hasAnyRole('CUSTOMER', 'MANAGER')")
+    public LoanBatchResponseDto batchGet(@RequestBody @Valid BatchGetRequestDto request) {
+        return loanService.findAllById(request.ids());
     }
 
     @Operation(summary = "Get loan by ID",
-            description = "Retrieve the details of a specific loan by its ID.")
+            description = "Retrieve the details of a specific loan by its ID. "
+                    + "Set expand=book,customer to embed the borrowed book and the customer.")
     @GetMapping("/{id}")
     @PreAuthorize("hasAnyRole('CUSTOMER', 'MANAGER')")
-    public LoanResponseDto findById(@PathVariable String id) {
-        return loanService.findById(id);
+    public ResponseEntity<LoanResponseDto> findById(
+            @PathVariable String id,
+            @RequestParam(defaultValue = "") Set<String> expand) {
+        LoanResponseDto loan = loanService.findById(id, expand);
+        return ResponseEntity.ok()
+                .eTag(ETagUtil.toETag(loan.version()))
+                .body(loan);
     }
 
     @Operation(summary = "Create loan",
@@ -74,12 +129,18 @@ public class LoanController {
     }
 
     @Operation(summary = "Update loan",
-            description = "Update loan details by ID. Can be performed only by a manager.")
+            description = "Update loan details by ID. Can be performed only by a manager. "
+                    + "Pass the loan's ETag in If-Match to reject concurrent changes.")
     @PutMapping("/{id}")
     @PreAuthorize("hasRole('MANAGER')")
-    public LoanResponseDto updateById(
+    public ResponseEntity<LoanResponseDto> updateById(
             @PathVariable String id,
-            @RequestBody @Valid LoanRequestDto loanRequestDto) {
-        return loanService.updateById(id, loanRequestDto);
+            @RequestBody @Valid LoanRequestDto loanRequestDto,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        LoanResponseDto loan = loanService.updateById(
+                id, loanRequestDto, ETagUtil.parseIfMatch(ifMatch));
+        return ResponseEntity.ok()
+                .eTag(ETagUtil.toETag(loan.version()))
+                .body(loan);
     }
 }
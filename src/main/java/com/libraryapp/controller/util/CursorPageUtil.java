@@ -0,0 +1,23 @@
+package com.libraryapp.controller.util;
+
+import com.libraryapp.repository.support.CursorPage;
+import java.util.List;
+import org.springframework.http.ResponseEntity;
+
+public final class CursorPageUtil {
+
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private CursorPageUtil() {
+    }
+
+    // The header is left out on the last page
+    public static <T> ResponseEntity<List<T>> toResponse(CursorPage<T> page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+
+        return response.body(page.content());
+    }
+}
@@ -0,0 +1,33 @@
+package com.libraryapp.controller.util;
+
+import com.libraryapp.exception.custom.InvalidHeaderException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public final class ETagUtil {
+
+    private static final String ANY = "*";
+    // A single, optionally weak, entity tag holding a version, e.g. "3" or W/"3"
+    private static final Pattern VERSION_TAG = Pattern.compile("(?:W/)?\"(\\d{1,18})\"");
+
+    private ETagUtil() {
+    }
+
+    public static String toETag(Long version) {
+        return "\"" + version + "\"";
+    }
+
+    // Null when the client didn't ask for a version check
+    public static Long parseIfMatch(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ANY.equals(ifMatch.trim())) {
+            return null;
+        }
+
+        Matcher matcher = VERSION_TAG.matcher(ifMatch.trim());
+        if (!matcher.matches()) {
+            throw new InvalidHeaderException("Malformed If-Match header: " + ifMatch);
+        }
+
+        return Long.parseLong(matcher.group(1));
+    }
+}
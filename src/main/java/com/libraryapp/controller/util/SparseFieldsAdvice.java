@@ -0,0 +1,99 @@
+package com.libraryapp.controller.util;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import jakarta.servlet.http.HttpServletRequest;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJacksonValue;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.AbstractMappingJacksonResponseBodyAdvice;
+
+// Writes only the fields a client asked for with ?fields=, on endpoints that accept it.
+// Response records opt in with @JsonFilter(FILTER_ID).
+@RestControllerAdvice
+public class SparseFieldsAdvice extends AbstractMappingJacksonResponseBodyAdvice {
+
+    public static final String FILTER_ID = "sparseFields";
+    private static final String FIELDS_PARAMETER = "fields";
+
+    @Override
+    public boolean supports(
+            MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        Method method = returnType.getMethod();
+        return super.supports(returnType, converterType)
+                && method != null
+                && Arrays.stream(method.getParameters())
+                .anyMatch(parameter -> FIELDS_PARAMETER.equals(parameter.getName()));
+    }
+
+    @Override
+    protected void beforeBodyWriteInternal(
+            MappingJacksonValue bodyContainer,
+            MediaType contentType,
+            MethodParameter returnType,
+            ServerHttpRequest request,
+            ServerHttpResponse response) {
+        if (!(request instanceof ServletServerHttpRequest servletRequest)) {
+            return;
+        }
+
+        Set<String> fields = getFields(servletRequest.getServletRequest());
+        if (!fields.isEmpty()) {
+            bodyContainer.setFilters(new SimpleFilterProvider().addFilter(
+                    FILTER_ID, new TopLevelFieldsFilter(fields)));
+        }
+    }
+
+    // Accepts both fields=id,title and fields=id&fields=title, like the request binding
+    private static Set<String> getFields(HttpServletRequest request) {
+        Set<String> fields = new HashSet<>();
+        String[] values = request.getParameterValues(FIELDS_PARAMETER);
+        if (values != null) {
+            for (String value : values) {
+                for (String field : StringUtils.commaDelimitedListToStringArray(value)) {
+                    fields.add(field.trim());
+                }
+            }
+        }
+        fields.remove("");
+
+        return fields;
+    }
+
+    // Expanded records nested in a response, like a loan's book, are written whole
+    private static class TopLevelFieldsFilter extends SimpleBeanPropertyFilter {
+
+        private final Set<String> fields;
+
+        TopLevelFieldsFilter(Set<String> fields) {
+            this.fields = fields;
+        }
+
+        @Override
+        public void serializeAsField(
+                Object pojo, JsonGenerator generator, SerializerProvider provider,
+                PropertyWriter writer) throws Exception {
+            JsonStreamContext parent = generator.getOutputContext().getParent();
+            boolean nested = parent != null && parent.inObject();
+            if (nested || fields.contains(writer.getName())) {
+                writer.serializeAsField(pojo, generator, provider);
+            } else if (!generator.canOmitFields()) {
+                writer.serializeAsOmittedField(pojo, generator, provider);
+            }
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.libraryapp.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import java.util.List;
+
+public record BatchGetRequestDto(
+        @NotEmpty
+        @Size(max = MAX_IDS)
+        List<@NotBlank @Size(max = 100) String> ids
+) {
+
+    public static final int MAX_IDS = 100;
+}
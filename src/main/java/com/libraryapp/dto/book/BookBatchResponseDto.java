@@ -0,0 +1,10 @@
+package com.libraryapp.dto.book;
+
+import java.util.List;
+
+// Books in the order they were asked for, and the ids that matched no book
+public record BookBatchResponseDto(
+        List<BookResponseDto> books,
+        List<String> missingIds
+) {
+}
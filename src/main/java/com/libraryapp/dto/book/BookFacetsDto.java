@@ -0,0 +1,11 @@
+package com.libraryapp.dto.book;
+
+import java.util.List;
+
+public record BookFacetsDto(
+        List<FacetCountDto> categories,
+        List<FacetCountDto> authors,
+        long available,
+        long borrowed
+) {
+}
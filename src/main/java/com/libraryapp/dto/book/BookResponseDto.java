@@ -1,10 +1,15 @@
 package com.libraryapp.dto.book;
 
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.libraryapp.controller.util.SparseFieldsAdvice;
+
+@JsonFilter(SparseFieldsAdvice.FILTER_ID)
 public record BookResponseDto(
         String id,
         String title,
         String author,
         String category,
-        Boolean isBorrowed
+        Boolean isBorrowed,
+        Long version
 ) {
 }
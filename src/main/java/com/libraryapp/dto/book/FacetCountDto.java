@@ -0,0 +1,7 @@
+package com.libraryapp.dto.book;
+
+public record FacetCountDto(
+        String value,
+        long count
+) {
+}
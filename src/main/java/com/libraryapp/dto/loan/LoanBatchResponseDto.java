@@ -0,0 +1,10 @@
+package com.libraryapp.dto.loan;
+
+import java.util.List;
+
+// Loans in the order they were asked for, and the ids that matched no visible loan
+public record LoanBatchResponseDto(
+        List<LoanResponseDto> loans,
+        List<String> missingIds
+) {
+}
@@ -1,12 +1,24 @@
 package com.libraryapp.dto.loan;
 
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.libraryapp.controller.util.SparseFieldsAdvice;
+import com.libraryapp.dto.book.BookResponseDto;
+import com.libraryapp.dto.user.UserResponseDto;
 import java.time.LocalDate;
 
+// book and customer are only set, and written, when the request expands them
+@JsonFilter(SparseFieldsAdvice.FILTER_ID)
 public record LoanResponseDto(
         String id,
         String bookId,
         String customerId,
         LocalDate borrowedDate,
-        LocalDate returnedDate
+        LocalDate returnedDate,
+        Long version,
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        BookResponseDto book,
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        UserResponseDto customer
 ) {
 }
@@ -7,6 +7,7 @@ public record UserResponseDto(
         String email,
         String firstName,
         String lastName,
-        User.Role role
+        User.Role role,
+        Long version
 ) {
 }
@@ -0,0 +1,6 @@
+package com.libraryapp.event;
+
+public record BookChangedEvent(
+        String bookId
+) {
+}
@@ -0,0 +1,35 @@
+package com.libraryapp.event;
+
+import com.libraryapp.model.Book;
+
+// Change to the number of books per category and author and to how many are borrowed.
+// A null category or author leaves the counts for categories or authors alone
+public record BookCountsChangedEvent(
+        String category,
+        String author,
+        int books,
+        int borrowedBooks
+) {
+
+    public static BookCountsChangedEvent added(Book book) {
+        return new BookCountsChangedEvent(
+                book.getCategory(), book.getAuthor(), 1, isBorrowed(book) ? 1 : 0);
+    }
+
+    public static BookCountsChangedEvent removed(Book book) {
+        return new BookCountsChangedEvent(
+                book.getCategory(), book.getAuthor(), -1, isBorrowed(book) ? -1 : 0);
+    }
+
+    public static BookCountsChangedEvent borrowed() {
+        return new BookCountsChangedEvent(null, null, 0, 1);
+    }
+
+    public static BookCountsChangedEvent returned() {
+        return new BookCountsChangedEvent(null, null, 0, -1);
+    }
+
+    private static boolean isBorrowed(Book book) {
+        return Boolean.TRUE.equals(book.getIsBorrowed());
+    }
+}
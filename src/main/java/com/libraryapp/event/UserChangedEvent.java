@@ -0,0 +1,8 @@
+package com.libraryapp.event;
+
+import com.libraryapp.model.User;
+
+public record UserChangedEvent(
+        User user
+) {
+}
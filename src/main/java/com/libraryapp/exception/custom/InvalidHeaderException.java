@@ -0,0 +1,8 @@
+package com.libraryapp.exception.custom;
+
+public class InvalidHeaderException extends RuntimeException {
+
+    public InvalidHeaderException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package com.libraryapp.exception.custom;
+
+public class InvalidQueryParameterException extends RuntimeException {
+
+    public InvalidQueryParameterException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,17 @@
+package com.libraryapp.exception.custom;
+
+import org.springframework.security.authentication.InternalAuthenticationServiceException;
+
+// Internal so ProviderManager rethrows it instead of retrying the parent manager's hash
+public class PasswordHashingUnavailableException extends InternalAuthenticationServiceException {
+
+    public static final String RETRY_AFTER_SECONDS = "1";
+
+    public PasswordHashingUnavailableException(String message) {
+        super(message);
+    }
+
+    public PasswordHashingUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
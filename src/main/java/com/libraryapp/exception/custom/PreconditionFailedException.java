@@ -0,0 +1,8 @@
+package com.libraryapp.exception.custom;
+
+public class PreconditionFailedException extends RuntimeException {
+
+    public PreconditionFailedException(String message) {
+        super(message);
+    }
+}
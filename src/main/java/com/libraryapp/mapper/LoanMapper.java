@@ -3,15 +3,27 @@ package com.libraryapp.mapper;
 import com.libraryapp.config.MapperConfig;
 import com.libraryapp.dto.loan.LoanRequestDto;
 import com.libraryapp.dto.loan.LoanResponseDto;
+import com.libraryapp.model.Book;
 import com.libraryapp.model.Loan;
+import com.libraryapp.model.User;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 import org.mapstruct.MappingTarget;
 
-@Mapper(config = MapperConfig.class)
+@Mapper(config = MapperConfig.class, uses = {BookMapper.class, UserMapper.class})
 public interface LoanMapper {
 
+    @Mapping(target = "book", ignore = true)
+    @Mapping(target = "customer", ignore = true)
     LoanResponseDto toDto(Loan loan);
 
+    // The book and customer are null when they weren't asked for or don't exist anymore
+    @Mapping(target = "id", source = "loan.id")
+    @Mapping(target = "version", source = "loan.version")
+    @Mapping(target = "book", source = "book")
+    @Mapping(target = "customer", source = "customer")
+    LoanResponseDto toDto(Loan loan, Book book, User customer);
+
     Loan toEntity(LoanRequestDto loanRequestDto);
 
     void updateLoanFromDto(@MappingTarget Loan loan, LoanRequestDto dto);
@@ -3,11 +3,36 @@ package com.libraryapp.model;
 import lombok.Builder;
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 @Data
 @Builder
 @Document(collection = "books")
+// Partial indexes only hold non-deleted documents, which is all the listings ever read.
+// Every index costs a write on each book insert and update, so only the filter and sort
+// pairs BookRepositoryCustomImpl allows have one.
+@CompoundIndex(name = "active_id", def = "{ 'isDeleted': 1, '_id': 1 }",
+        partialFilter = "{ 'isDeleted': false }")
+@CompoundIndex(name = "active_title", def = "{ 'title': 1, '_id': 1 }",
+        partialFilter = "{ 'isDeleted': false }")
+@CompoundIndex(name = "active_author", def = "{ 'author': 1, '_id': 1 }",
+        partialFilter = "{ 'isDeleted': false }")
+// The filtered listings: the equality filters first, then the sort key and _id
+@CompoundIndex(name = "active_category_title", def = "{ 'category': 1, 'title': 1, '_id': 1 }",
+        partialFilter = "{ 'isDeleted': false }")
+@CompoundIndex(name = "active_author_title", def = "{ 'author': 1, 'title': 1, '_id': 1 }",
+        partialFilter = "{ 'isDeleted': false }")
+@CompoundIndex(name = "active_available", def = "{ 'isBorrowed': 1, '_id': 1 }",
+        partialFilter = "{ 'isDeleted': false }")
+@CompoundIndex(name = "active_category_available_title",
+        def = "{ 'category': 1, 'isBorrowed': 1, 'title': 1, '_id': 1 }",
+        partialFilter = "{ 'isDeleted': false }")
+// Holds every field the facet counts read, so they never load a document
+@CompoundIndex(name = "active_facets",
+        def = "{ 'isDeleted': 1, 'category': 1, 'author': 1, 'isBorrowed': 1 }",
+        partialFilter = "{ 'isDeleted': false }")
 public class Book {
 
     @Id
@@ -15,6 +40,10 @@ public class Book {
     private String title;
     private String author;
     private String category;
+    @Builder.Default
     private Boolean isBorrowed = false;
+    @Builder.Default
     private Boolean isDeleted = false;
+    @Version
+    private Long version;
 }
@@ -3,10 +3,19 @@ package com.libraryapp.model;
 import java.time.LocalDate;
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 @Data
 @Document(collection = "loans")
+@CompoundIndex(name = "customer_borrowed",
+        def = "{ 'customerId': 1, 'isDeleted': 1, 'borrowedDate': 1, '_id': 1 }")
+// Manager listings and counts never read deleted loans, so they stay out of the index
+@CompoundIndex(name = "active_id", def = "{ 'isDeleted': 1, '_id': 1 }",
+        partialFilter = "{ 'isDeleted': false }")
+@CompoundIndex(name = "active_borrowed", def = "{ 'borrowedDate': 1, '_id': 1 }",
+        partialFilter = "{ 'isDeleted': false }")
 public class Loan {
 
     @Id
@@ -16,4 +25,6 @@ public class Loan {
     private LocalDate borrowedDate;
     private LocalDate returnedDate;
     private Boolean isDeleted = false;
+    @Version
+    private Long version;
 }
@@ -4,6 +4,8 @@ import java.util.Collection;
 import java.util.List;
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
@@ -17,12 +19,16 @@ public class User implements UserDetails {
 
     @Id
     private String id;
+    @Indexed(name = "email_unique", unique = true)
     private String email;
     private String password;
     private String firstName;
     private String lastName;
     private Role role = Role.CUSTOMER; // Default role
     private Boolean isDeleted = false;
+    private Long securityVersion = 0L; // Bumped whenever issued tokens must be rechecked
+    @Version
+    private Long version;
 
     public enum Role {
         MANAGER,
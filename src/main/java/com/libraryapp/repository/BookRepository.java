@@ -1,13 +1,19 @@
 package com.libraryapp.repository;
 
 import com.libraryapp.model.Book;
-import java.util.List;
-import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.Update;
 import org.springframework.stereotype.Repository;
 
 @Repository
-public interface BookRepository extends MongoRepository<Book, String> {
+public interface BookRepository extends MongoRepository<Book, String>, BookRepositoryCustom {
 
-    List<Book> findAllByIsDeletedFalse(Pageable pageable);
+    @Query("{ '_id': ?0, 'isBorrowed': false, 'isDeleted': false }")
+    @Update("{ '$set': { 'isBorrowed': true }, '$inc': { 'version': 1 } }")
+    long markBorrowedIfAvailable(String id);
+
+    @Query("{ '_id': ?0, 'isBorrowed': true }")
+    @Update("{ '$set': { 'isBorrowed': false }, '$inc': { 'version': 1 } }")
+    long markAvailable(String id);
 }
@@ -0,0 +1,30 @@
+package com.libraryapp.repository;
+
+import com.libraryapp.model.Book;
+import com.libraryapp.repository.support.BookFacetCounts;
+import com.libraryapp.repository.support.BookFilter;
+import com.libraryapp.repository.support.CursorPage;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+public interface BookRepositoryCustom {
+
+    // The book as it was before, or empty if no book with this id exists
+    Optional<Book> markDeleted(String id);
+
+    // Offset page of non-deleted books matching the filter; combinations of filter and sort
+    // without an index are rejected rather than scanned. Only the given fields are read,
+    // or all of them if there are none.
+    List<Book> findAllByIsDeletedFalse(BookFilter filter, Set<String> fields, Pageable pageable);
+
+    // Keyset page of non-deleted books matching the filter and following the cursor,
+    // or the first page if it is blank
+    CursorPage<Book> findAllByIsDeletedFalseAfter(
+            BookFilter filter, Set<String> fields, String cursor, Sort sort, int size);
+
+    // Counts of non-deleted books by category, author and availability in one aggregation
+    BookFacetCounts countFacets(int topAuthors);
+}
@@ -1,15 +1,13 @@
 package com.libraryapp.repository;
 
 import com.libraryapp.model.Loan;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
 @Repository
-public interface LoanRepository extends MongoRepository<Loan, String> {
+public interface LoanRepository extends MongoRepository<Loan, String>, LoanRepositoryCustom {
 
-    Page<Loan> findAllByCustomerIdAndIsDeletedFalse(String userId, Pageable pageable);
+    long countByCustomerIdAndIsDeletedFalse(String userId);
 
-    Page<Loan> findAllByIsDeletedFalse(Pageable pageable);
+    long countByIsDeletedFalse();
 }
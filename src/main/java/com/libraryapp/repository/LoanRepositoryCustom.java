@@ -0,0 +1,33 @@
+package com.libraryapp.repository;
+
+import com.libraryapp.model.Loan;
+import com.libraryapp.repository.support.CursorPage;
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.Set;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+
+public interface LoanRepositoryCustom {
+
+    // Empty if the loan doesn't exist, is deleted or was already returned
+    Optional<Loan> markReturned(String id, LocalDate returnedDate);
+
+    // The loan as it was before, empty if no loan with this id exists
+    Optional<Loan> markDeleted(String id);
+
+    // Slices skip the count query a Page would run on every call. All listings only read
+    // the given fields, or all of them if there are none.
+    Slice<Loan> findAllByIsDeletedFalse(Set<String> fields, Pageable pageable);
+
+    Slice<Loan> findAllByCustomerIdAndIsDeletedFalse(
+            String customerId, Set<String> fields, Pageable pageable);
+
+    // Keyset pages following the cursor, or the first page if it is blank
+    CursorPage<Loan> findAllByIsDeletedFalseAfter(
+            Set<String> fields, String cursor, Sort sort, int size);
+
+    CursorPage<Loan> findAllByCustomerIdAndIsDeletedFalseAfter(
+            String customerId, Set<String> fields, String cursor, Sort sort, int size);
+}
@@ -1,12 +1,26 @@
 package com.libraryapp.repository;
 
 import com.libraryapp.model.User;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
 @Repository
-public interface UserRepository extends MongoRepository<User, String> {
+public interface UserRepository extends MongoRepository<User, String>, UserRepositoryCustom {
 
     Optional<User> findByEmail(String email);
+
+    // For responses, which never need the password hash
+    @Query(value = "{ '_id': ?0 }", fields = "{ 'password': 0 }")
+    Optional<User> findWithoutPasswordById(String id);
+
+    // For checking tokens, which only need to know whether the user changed since
+    @Query(value = "{ '_id': ?0 }", fields = "{ 'securityVersion': 1, 'isDeleted': 1 }")
+    Optional<User> findSecurityVersionById(String id);
+
+    @Query(value = "{ '_id': { '$in': ?0 } }", fields = "{ 'password': 0 }")
+    List<User> findAllWithoutPasswordByIdIn(Collection<String> ids);
 }
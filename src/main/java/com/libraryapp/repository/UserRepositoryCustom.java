@@ -0,0 +1,12 @@
+package com.libraryapp.repository;
+
+import com.libraryapp.model.User;
+import java.util.Optional;
+
+public interface UserRepositoryCustom {
+
+    // Both also bump the security version and return the updated user, or empty if missing
+    Optional<User> updateRole(String id, User.Role role);
+
+    Optional<User> markDeleted(String id);
+}
@@ -0,0 +1,176 @@
+package com.libraryapp.repository.impl;
+
+import com.libraryapp.exception.custom.InvalidQueryParameterException;
+import com.libraryapp.model.Book;
+import com.libraryapp.repository.BookRepositoryCustom;
+import com.libraryapp.repository.support.BookFacetCounts;
+import com.libraryapp.repository.support.BookFilter;
+import com.libraryapp.repository.support.CursorPage;
+import com.libraryapp.repository.support.FieldProjection;
+import com.libraryapp.repository.support.KeysetPaginator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+@RequiredArgsConstructor
+public class BookRepositoryCustomImpl implements BookRepositoryCustom {
+
+    // Filtered fields -> properties the books can be sorted by, each pair backed by one of
+    // the indexes declared on Book
+    private static final Map<Set<String>, Set<String>> SORTABLE_PROPERTIES_BY_FILTER = Map.of(
+            Set.of(), Set.of("id", "title", "author"),
+            Set.of("category"), Set.of("title"),
+            Set.of("author"), Set.of("id", "title"),
+            Set.of("isBorrowed"), Set.of("id"),
+            Set.of("category", "isBorrowed"), Set.of("title"));
+    // Keyset pages without a sort use the id, or the title where the id has no index
+    private static final String ID_PROPERTY = "id";
+    private static final String TITLE_PROPERTY = "title";
+    private static final String ID_FIELD = "_id";
+    private static final String COUNT_FIELD = "count";
+
+    private final MongoTemplate mongoTemplate;
+    private final KeysetPaginator keysetPaginator;
+
+    @Override
+    public Optional<Book> markDeleted(String id) {
+        Query query = Query.query(Criteria.where("id").is(id));
+        Update update = Update.update("isDeleted", true).inc("version", 1);
+
+        // Deleting twice is still a success, the previous state tells whether it was the first
+        return Optional.ofNullable(mongoTemplate.findAndModify(query, update, Book.class));
+    }
+
+    @Override
+    public List<Book> findAllByIsDeletedFalse(
+            BookFilter filter, Set<String> fields, Pageable pageable) {
+        validateSort(pageable.getSort(), getSortableProperties(filter));
+
+        Query query = new Query(toCriteria(filter)).with(pageable);
+        return mongoTemplate.find(FieldProjection.include(query, fields), Book.class);
+    }
+
+    @Override
+    public CursorPage<Book> findAllByIsDeletedFalseAfter(
+            BookFilter filter, Set<String> fields, String cursor, Sort sort, int size) {
+        Set<String> sortableProperties = getSortableProperties(filter);
+        validateSort(sort, sortableProperties);
+        Sort pageSort = sort.isSorted() || sortableProperties.contains(ID_PROPERTY)
+                ? sort
+                : Sort.by(TITLE_PROPERTY);
+
+        return keysetPaginator.findPage(toCriteria(filter), fields,
+                cursor, pageSort, size, sortableProperties, Book.class);
+    }
+
+    @Override
+    public BookFacetCounts countFacets(int topAuthors) {
+        Sort byCount = Sort.by(Sort.Direction.DESC, COUNT_FIELD).and(Sort.by(ID_FIELD));
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("isDeleted").is(false)),
+                // Only fields of the active_facets index, which then answers without a fetch
+                Aggregation.project("category", "author", "isBorrowed").andExclude(ID_FIELD),
+                Aggregation.facet(Aggregation.group("category").count().as(COUNT_FIELD))
+                        .as("categories")
+                        .and(Aggregation.group("author").count().as(COUNT_FIELD),
+                                Aggregation.sort(byCount),
+                                Aggregation.limit(topAuthors))
+                        .as("authors")
+                        .and(Aggregation.group("isBorrowed").count().as(COUNT_FIELD))
+                        .as("availability"));
+
+        Document result = mongoTemplate.aggregate(aggregation, Book.class, Document.class)
+                .getUniqueMappedResult();
+        long books = 0;
+        long borrowedBooks = 0;
+        for (Document availability : result.getList("availability", Document.class)) {
+            long count = getCount(availability);
+            books += count;
+            if (Boolean.TRUE.equals(availability.get(ID_FIELD))) {
+                borrowedBooks += count;
+            }
+        }
+
+        return new BookFacetCounts(toCounts(result.getList("categories", Document.class)),
+                toCounts(result.getList("authors", Document.class)), books, borrowedBooks);
+    }
+
+    private static void validateSort(Sort sort, Set<String> sortableProperties) {
+        List<Sort.Order> orders = sort.toList();
+        if (orders.size() > 1) {
+            throw new InvalidQueryParameterException(
+                    "Books can only be sorted by a single property.");
+        }
+        for (Sort.Order order : orders) {
+            if (!sortableProperties.contains(order.getProperty())) {
+                throw new InvalidQueryParameterException("Books can't be sorted by '"
+                        + order.getProperty() + "' with these filters.");
+            }
+        }
+    }
+
+    private static Set<String> getSortableProperties(BookFilter filter) {
+        Set<String> filteredFields = new HashSet<>();
+        if (filter.category() != null) {
+            filteredFields.add("category");
+        }
+        if (filter.author() != null) {
+            filteredFields.add("author");
+        }
+        if (filter.available() != null) {
+            filteredFields.add("isBorrowed");
+        }
+
+        Set<String> sortableProperties = SORTABLE_PROPERTIES_BY_FILTER.get(filteredFields);
+        if (sortableProperties == null) {
+            throw new InvalidQueryParameterException(
+                    "Books can't be filtered by this combination of filters.");
+        }
+
+        return sortableProperties;
+    }
+
+    // Equalities only, so the filtered fields stay a prefix the index can sort after
+    private static Criteria toCriteria(BookFilter filter) {
+        Criteria criteria = Criteria.where("isDeleted").is(false);
+        if (filter.category() != null) {
+            criteria.and("category").is(filter.category());
+        }
+        if (filter.author() != null) {
+            criteria.and("author").is(filter.author());
+        }
+        if (filter.available() != null) {
+            criteria.and("isBorrowed").is(!filter.available());
+        }
+
+        return criteria;
+    }
+
+    // Books without a value are left out
+    private static Map<String, Long> toCounts(List<Document> groups) {
+        Map<String, Long> counts = new HashMap<>();
+        for (Document group : groups) {
+            if (group.get(ID_FIELD) instanceof String value) {
+                counts.put(value, getCount(group));
+            }
+        }
+
+        return counts;
+    }
+
+    private static long getCount(Document group) {
+        return ((Number) group.get(COUNT_FIELD)).longValue();
+    }
+}
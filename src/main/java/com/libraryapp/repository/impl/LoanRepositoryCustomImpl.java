@@ -0,0 +1,93 @@
+package com.libraryapp.repository.impl;
+
+import com.libraryapp.model.Loan;
+import com.libraryapp.repository.LoanRepositoryCustom;
+import com.libraryapp.repository.support.CursorPage;
+import com.libraryapp.repository.support.FieldProjection;
+import com.libraryapp.repository.support.KeysetPaginator;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+@RequiredArgsConstructor
+public class LoanRepositoryCustomImpl implements LoanRepositoryCustom {
+
+    private static final Set<String> SORTABLE_PROPERTIES = Set.of("borrowedDate");
+
+    private final MongoTemplate mongoTemplate;
+    private final KeysetPaginator keysetPaginator;
+
+    @Override
+    public Optional<Loan> markReturned(String id, LocalDate returnedDate) {
+        Query query = Query.query(Criteria.where("id").is(id)
+                .and("returnedDate").is(null)
+                .and("isDeleted").ne(true));
+        Update update = Update.update("returnedDate", returnedDate).inc("version", 1);
+
+        return Optional.ofNullable(mongoTemplate.findAndModify(
+                query, update, FindAndModifyOptions.options().returnNew(true), Loan.class));
+    }
+
+    @Override
+    public Optional<Loan> markDeleted(String id) {
+        Query query = Query.query(Criteria.where("id").is(id));
+        Update update = Update.update("isDeleted", true).inc("version", 1);
+
+        // The previous state tells whether the loan still counted
+        return Optional.ofNullable(mongoTemplate.findAndModify(query, update, Loan.class));
+    }
+
+    @Override
+    public Slice<Loan> findAllByIsDeletedFalse(Set<String> fields, Pageable pageable) {
+        return findSlice(Criteria.where("isDeleted").is(false), fields, pageable);
+    }
+
+    @Override
+    public Slice<Loan> findAllByCustomerIdAndIsDeletedFalse(
+            String customerId, Set<String> fields, Pageable pageable) {
+        return findSlice(Criteria.where("customerId").is(customerId).and("isDeleted").is(false),
+                fields, pageable);
+    }
+
+    @Override
+    public CursorPage<Loan> findAllByIsDeletedFalseAfter(
+            Set<String> fields, String cursor, Sort sort, int size) {
+        return keysetPaginator.findPage(Criteria.where("isDeleted").is(false), fields,
+                cursor, sort, size, SORTABLE_PROPERTIES, Loan.class);
+    }
+
+    @Override
+    public CursorPage<Loan> findAllByCustomerIdAndIsDeletedFalseAfter(
+            String customerId, Set<String> fields, String cursor, Sort sort, int size) {
+        return keysetPaginator.findPage(
+                Criteria.where("customerId").is(customerId).and("isDeleted").is(false), fields,
+                cursor, sort, size, SORTABLE_PROPERTIES, Loan.class);
+    }
+
+    private Slice<Loan> findSlice(Criteria criteria, Set<String> fields, Pageable pageable) {
+        Query query = new Query(criteria).with(pageable);
+        if (pageable.isUnpaged()) {
+            return new SliceImpl<>(mongoTemplate.find(
+                    FieldProjection.include(query, fields), Loan.class));
+        }
+
+        // One extra loan tells whether there is a next slice
+        query.limit(pageable.getPageSize() + 1);
+        List<Loan> loans = mongoTemplate.find(FieldProjection.include(query, fields), Loan.class);
+        boolean hasNext = loans.size() > pageable.getPageSize();
+
+        return new SliceImpl<>(hasNext ? loans.subList(0, pageable.getPageSize()) : loans,
+                pageable, hasNext);
+    }
+}
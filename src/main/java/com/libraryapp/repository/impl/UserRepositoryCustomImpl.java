@@ -0,0 +1,36 @@
+package com.libraryapp.repository.impl;
+
+import com.libraryapp.model.User;
+import com.libraryapp.repository.UserRepositoryCustom;
+import java.util.Optional;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+@RequiredArgsConstructor
+public class UserRepositoryCustomImpl implements UserRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public Optional<User> updateRole(String id, User.Role role) {
+        return updateSecurityRelevantField(id, Update.update("role", role));
+    }
+
+    @Override
+    public Optional<User> markDeleted(String id) {
+        return updateSecurityRelevantField(id, Update.update("isDeleted", true));
+    }
+
+    private Optional<User> updateSecurityRelevantField(String id, Update update) {
+        // The updated user is needed for the response and for cache invalidation
+        Query query = Query.query(Criteria.where("id").is(id));
+        update.inc("securityVersion", 1).inc("version", 1);
+
+        return Optional.ofNullable(mongoTemplate.findAndModify(
+                query, update, FindAndModifyOptions.options().returnNew(true), User.class));
+    }
+}
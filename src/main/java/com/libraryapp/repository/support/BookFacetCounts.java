@@ -0,0 +1,12 @@
+package com.libraryapp.repository.support;
+
+import java.util.Map;
+
+// Non-deleted books per category and per author (only the top ones), and in total
+public record BookFacetCounts(
+        Map<String, Long> categories,
+        Map<String, Long> authors,
+        long books,
+        long borrowedBooks
+) {
+}
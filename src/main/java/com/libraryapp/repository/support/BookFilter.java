@@ -0,0 +1,11 @@
+package com.libraryapp.repository.support;
+
+// Equality filters of the book listings, a null field doesn't filter
+public record BookFilter(
+        String category,
+        String author,
+        Boolean available
+) {
+
+    public static final BookFilter NONE = new BookFilter(null, null, null);
+}
@@ -0,0 +1,12 @@
+package com.libraryapp.repository.support;
+
+import java.util.List;
+import java.util.function.Function;
+
+// nextCursor is null on the last page
+public record CursorPage<T>(List<T> content, String nextCursor) {
+
+    public <R> CursorPage<R> map(Function<? super T, ? extends R> mapper) {
+        return new CursorPage<>(content.stream().<R>map(mapper).toList(), nextCursor);
+    }
+}
@@ -0,0 +1,46 @@
+package com.libraryapp.repository.support;
+
+import io.github.cdimascio.dotenv.Dotenv;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import org.springframework.stereotype.Component;
+
+// Cursors go through the client, so only ones this app issued are decoded
+@Component
+public class CursorSigner {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    // Keeps the cursor key apart from the JWT signing key
+    private static final String KEY_LABEL = "keyset-cursor";
+
+    private final SecretKeySpec key;
+
+    public CursorSigner(Dotenv dotenv) {
+        String secretString = dotenv.get("JWT_SECRET_STRING");
+        key = new SecretKeySpec(
+                hmac(new SecretKeySpec(secretString.getBytes(StandardCharsets.UTF_8), ALGORITHM),
+                        KEY_LABEL.getBytes(StandardCharsets.UTF_8)),
+                ALGORITHM);
+    }
+
+    public byte[] sign(byte[] payload) {
+        return hmac(key, payload);
+    }
+
+    public boolean verify(byte[] payload, byte[] signature) {
+        return MessageDigest.isEqual(sign(payload), signature);
+    }
+
+    private static byte[] hmac(SecretKeySpec key, byte[] payload) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac.doFinal(payload);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " is not available.", e);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.libraryapp.repository.support;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mongodb.client.MongoClient;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+// Explains every new query shape once and logs the ones that are not answered from an index
+@Slf4j
+public class ExplainPlanVerifier implements CommandListener {
+
+    // Command name -> field holding the query filter
+    private static final Map<String, String> FILTER_FIELDS = Map.of(
+            "find", "filter",
+            "count", "query",
+            "findAndModify", "query",
+            "update", "updates",
+            "delete", "deletes",
+            "aggregate", "pipeline");
+    // Session, transaction and routing fields are not accepted inside an explain
+    private static final Set<String> SESSION_FIELDS = Set.of(
+            "lsid", "txnNumber", "autocommit", "startTransaction", "readConcern",
+            "writeConcern", "apiVersion", "apiStrict", "apiDeprecationErrors");
+    private static final Set<String> INDEXED_STAGES = Set.of(
+            "IXSCAN", "EXPRESS_IXSCAN", "IDHACK", "COUNT_SCAN", "DISTINCT_SCAN");
+    private static final String COLLECTION_SCAN = "COLLSCAN";
+    private static final Set<String> IGNORED_PLAN_FIELDS =
+            Set.of("rejectedPlans", "executionStats");
+
+    private final ObjectProvider<MongoClient> mongoClientProvider;
+    // Query shapes that were already explained, so each one is only checked once
+    private final Cache<String, Boolean> explainedShapes;
+    // Explains run off the request threads and are simply dropped when the queue is full
+    private final ThreadPoolExecutor executor;
+
+    public ExplainPlanVerifier(ObjectProvider<MongoClient> mongoClientProvider,
+                               long maximumShapes, int queueCapacity) {
+        this.mongoClientProvider = mongoClientProvider;
+        explainedShapes = Caffeine.newBuilder()
+                .maximumSize(maximumShapes)
+                .build();
+        executor = new ThreadPoolExecutor(
+                1,
+                1,
+                0,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new CustomizableThreadFactory("explain-plan-verifier-"),
+                new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        String filterField = FILTER_FIELDS.get(event.getCommandName());
+        if (filterField == null) {
+            return;
+        }
+        BsonDocument command = event.getCommand();
+        BsonDocument filter = getFilter(command, filterField);
+        // Unfiltered reads are full scans by definition
+        if (filter == null || filter.isEmpty()) {
+            return;
+        }
+
+        String shape = event.getCommandName() + " "
+                + command.getString(event.getCommandName()).getValue() + " "
+                + toShape(filter) + " "
+                + toShape(command.get("sort"));
+        if (explainedShapes.asMap().putIfAbsent(shape, Boolean.TRUE) != null) {
+            return;
+        }
+
+        // The event's document is only valid during this callback
+        BsonDocument explainedCommand = toExplainableCommand(command);
+        String databaseName = event.getDatabaseName();
+        executor.execute(() -> explain(databaseName, explainedCommand, shape));
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void explain(String databaseName, BsonDocument command, String shape) {
+        try {
+            Document explanation = mongoClientProvider.getObject()
+                    .getDatabase(databaseName)
+                    .runCommand(new Document("explain", command)
+                            .append("verbosity", "queryPlanner"));
+            List<String> stages = getPlanStages(explanation);
+            if (!isIndexed(stages)) {
+                log.warn("Query is not served by an index: {} (plan stages: {})", shape, stages);
+            }
+        } catch (RuntimeException e) {
+            log.debug("Could not explain query {}", shape, e);
+        }
+    }
+
+    // Copies a command so that it can be sent again wrapped in an explain
+    public static BsonDocument toExplainableCommand(BsonDocument command) {
+        BsonDocument copy = command.clone();
+        copy.keySet().removeIf(key -> key.startsWith("$") || SESSION_FIELDS.contains(key));
+
+        return copy;
+    }
+
+    public static List<String> getPlanStages(Document explanation) {
+        List<String> stages = new ArrayList<>();
+        collectStages(explanation, stages);
+
+        return stages;
+    }
+
+    public static boolean isIndexed(List<String> stages) {
+        return !stages.contains(COLLECTION_SCAN)
+                && stages.stream().anyMatch(INDEXED_STAGES::contains);
+    }
+
+    static BsonDocument getFilter(BsonDocument command, String filterField) {
+        BsonValue filter = command.get(filterField);
+        if (filter instanceof BsonArray statements) {
+            if (statements.isEmpty()) {
+                return null;
+            }
+            // Updates and deletes carry a list of statements, the first one stands for the
+            // batch; pipelines (e.g. counts) are filtered by their leading $match
+            String statementFilterField = "aggregate".equals(command.getFirstKey())
+                    ? "$match"
+                    : "q";
+            filter = statements.get(0).asDocument().get(statementFilterField);
+        }
+
+        return filter instanceof BsonDocument document ? document : null;
+    }
+
+    // Replaces the values of a filter or sort so that queries only differing in them match
+    static String toShape(BsonValue value) {
+        if (value == null) {
+            return "{}";
+        }
+        if (value instanceof BsonDocument document) {
+            List<String> fields = new ArrayList<>();
+            document.forEach((key, fieldValue) -> fields.add(key + ": " + toShape(fieldValue)));
+            return "{" + String.join(", ", fields) + "}";
+        }
+        if (value instanceof BsonArray array) {
+            List<String> elements = new ArrayList<>();
+            array.forEach(element -> elements.add(toShape(element)));
+            return "[" + String.join(", ", elements) + "]";
+        }
+
+        return "?";
+    }
+
+    // Only the winning plan counts; rejected plans may well contain scans. Aggregations
+    // nest their plan inside the first stage, so the whole explanation is searched
+    private static void collectStages(Object node, List<String> stages) {
+        if (node instanceof Document document) {
+            document.forEach((key, value) -> {
+                if ("stage".equals(key) && value instanceof String stage) {
+                    stages.add(stage);
+                } else if (!IGNORED_PLAN_FIELDS.contains(key)) {
+                    collectStages(value, stages);
+                }
+            });
+        } else if (node instanceof List<?> list) {
+            list.forEach(element -> collectStages(element, stages));
+        }
+    }
+}
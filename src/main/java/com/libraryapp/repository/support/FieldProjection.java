@@ -0,0 +1,38 @@
+package com.libraryapp.repository.support;
+
+import com.libraryapp.exception.custom.InvalidQueryParameterException;
+import java.lang.reflect.RecordComponent;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.springframework.data.mongodb.core.query.Query;
+
+// Sparse fieldsets: only the response fields a client asked for are read from Mongo
+public final class FieldProjection {
+
+    private FieldProjection() {
+    }
+
+    // Fields must be components of the response record, no fields means all of them
+    public static void validate(Set<String> fields, Class<? extends Record> responseType) {
+        Set<String> components = Arrays.stream(responseType.getRecordComponents())
+                .map(RecordComponent::getName)
+                .collect(Collectors.toSet());
+        for (String field : fields) {
+            if (!components.contains(field)) {
+                throw new InvalidQueryParameterException("Unknown field '" + field + "'.");
+            }
+        }
+    }
+
+    // The required fields are the ones the query itself needs, like the keys of a cursor
+    public static Query include(Query query, Set<String> fields, String... requiredFields) {
+        if (!fields.isEmpty()) {
+            query.fields()
+                    .include(fields.toArray(String[]::new))
+                    .include(requiredFields);
+        }
+
+        return query;
+    }
+}
@@ -0,0 +1,25 @@
+package com.libraryapp.repository.support;
+
+import com.libraryapp.dto.BatchGetRequestDto;
+import com.libraryapp.exception.custom.InvalidQueryParameterException;
+import java.util.List;
+
+// Multi-get: the ids of one batch are read with a single $in query
+public final class IdBatch {
+
+    private IdBatch() {
+    }
+
+    // Repeated ids are read once, and answered at their first position
+    public static List<String> distinct(List<String> ids) {
+        List<String> distinctIds = ids.stream()
+                .distinct()
+                .toList();
+        if (distinctIds.size() > BatchGetRequestDto.MAX_IDS) {
+            throw new InvalidQueryParameterException(
+                    "At most " + BatchGetRequestDto.MAX_IDS + " ids can be read at once.");
+        }
+
+        return distinctIds;
+    }
+}
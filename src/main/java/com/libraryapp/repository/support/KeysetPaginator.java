@@ -0,0 +1,212 @@
+package com.libraryapp.repository.support;
+
+import com.libraryapp.exception.custom.InvalidQueryParameterException;
+import java.nio.charset.StandardCharsets;
+import java.time.temporal.Temporal;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.bson.json.JsonParseException;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+// Pages by "sort key > last key" instead of skip, so every page costs the same
+@Component
+@RequiredArgsConstructor
+public class KeysetPaginator {
+
+    private static final String ID_FIELD = "_id";
+    private static final String FIELD_KEY = "f";
+    private static final String DIRECTION_KEY = "d";
+    private static final String VALUE_KEY = "v";
+    private static final String LAST_ID_KEY = "i";
+    private static final String SIGNATURE_SEPARATOR = ".";
+    private static final String INVALID_CURSOR_ERROR = "Invalid cursor.";
+
+    private final MongoTemplate mongoTemplate;
+    private final CursorSigner cursorSigner;
+
+    // With fields, only those and the keys the next cursor is made of are read
+    public <T> CursorPage<T> findPage(
+            Criteria filter,
+            Set<String> fields,
+            String cursor,
+            Sort sort,
+            int size,
+            Set<String> sortableProperties,
+            Class<T> type) {
+        Document position = decode(cursor);
+        String field;
+        Sort.Direction direction;
+        if (position != null) {
+            // The cursor pins the sort of the first page
+            field = position.getString(FIELD_KEY);
+            direction = Sort.Direction.fromString(position.getString(DIRECTION_KEY));
+            validatePosition(position, field, sortableProperties, type);
+        } else {
+            Sort.Order order = getSingleOrder(sort);
+            field = getFieldName(order.getProperty(), sortableProperties, type);
+            direction = order.getDirection();
+        }
+
+        Query query = new Query(position == null
+                ? filter
+                : new Criteria().andOperator(filter, after(position, field, direction)));
+        query.with(ID_FIELD.equals(field)
+                ? Sort.by(direction, ID_FIELD)
+                : Sort.by(direction, field, ID_FIELD));
+        query.limit(size + 1); // One extra document tells whether there is a next page
+        FieldProjection.include(query, fields, field, ID_FIELD);
+
+        List<T> documents = mongoTemplate.find(query, type);
+        if (documents.size() <= size) {
+            return new CursorPage<>(documents, null);
+        }
+
+        List<T> content = documents.subList(0, size);
+        return new CursorPage<>(content, encode(content.get(size - 1), field, direction));
+    }
+
+    private Criteria after(Document position, String field, Sort.Direction direction) {
+        Object lastId = position.get(LAST_ID_KEY);
+        Criteria afterLastId = direction.isAscending()
+                ? Criteria.where(ID_FIELD).gt(lastId)
+                : Criteria.where(ID_FIELD).lt(lastId);
+        if (ID_FIELD.equals(field)) {
+            return afterLastId;
+        }
+
+        Object lastValue = position.get(VALUE_KEY);
+        Criteria afterLastValue = direction.isAscending()
+                ? Criteria.where(field).gt(lastValue)
+                : Criteria.where(field).lt(lastValue);
+
+        return new Criteria().orOperator(
+                afterLastValue,
+                new Criteria().andOperator(Criteria.where(field).is(lastValue), afterLastId));
+    }
+
+    private Sort.Order getSingleOrder(Sort sort) {
+        List<Sort.Order> orders = sort.toList();
+        if (orders.size() > 1) {
+            throw new InvalidQueryParameterException(
+                    "Cursor pagination supports sorting by a single property.");
+        }
+
+        return orders.isEmpty() ? Sort.Order.asc(ID_FIELD) : orders.get(0);
+    }
+
+    private String getFieldName(String property, Set<String> sortableProperties, Class<?> type) {
+        if (ID_FIELD.equals(property) || "id".equals(property)) {
+            return ID_FIELD;
+        }
+        if (!sortableProperties.contains(property)) {
+            throw new InvalidQueryParameterException(
+                    "Cursor pagination can't sort by '" + property + "'.");
+        }
+
+        return getPersistentProperty(property, type).getFieldName();
+    }
+
+    // The keys end up in $gt/$lt, where a document would act as an operator such as $regex
+    // and null would sort before every value
+    private void validatePosition(
+            Document position, String field, Set<String> sortableProperties, Class<?> type) {
+        if (!(position.get(LAST_ID_KEY) instanceof ObjectId)) {
+            throw new InvalidQueryParameterException(INVALID_CURSOR_ERROR);
+        }
+        if (ID_FIELD.equals(field)) {
+            return;
+        }
+
+        MongoPersistentProperty property = sortableProperties.stream()
+                .map(sortableProperty -> getPersistentProperty(sortableProperty, type))
+                .filter(sortableProperty -> sortableProperty.getFieldName().equals(field))
+                .findFirst()
+                .orElseThrow(() -> new InvalidQueryParameterException(INVALID_CURSOR_ERROR));
+        if (!isScalarOf(position.get(VALUE_KEY), property.getType())) {
+            throw new InvalidQueryParameterException(INVALID_CURSOR_ERROR);
+        }
+    }
+
+    private static boolean isScalarOf(Object value, Class<?> propertyType) {
+        Class<?> type = ClassUtils.resolvePrimitiveIfNecessary(propertyType);
+        if (CharSequence.class.isAssignableFrom(type) || type.isEnum()) {
+            return value instanceof String;
+        }
+        if (Number.class.isAssignableFrom(type)) {
+            return value instanceof Number;
+        }
+        if (Boolean.class.equals(type)) {
+            return value instanceof Boolean;
+        }
+        if (Temporal.class.isAssignableFrom(type) || Date.class.isAssignableFrom(type)) {
+            return value instanceof Date;
+        }
+
+        return false;
+    }
+
+    private MongoPersistentProperty getPersistentProperty(String property, Class<?> type) {
+        return mongoTemplate.getConverter()
+                .getMappingContext()
+                .getRequiredPersistentEntity(type)
+                .getRequiredPersistentProperty(property);
+    }
+
+    private String encode(Object lastDocument, String field, Sort.Direction direction) {
+        // Store the keys as Mongo writes them, so dates and ObjectIds survive the round trip
+        Document stored = new Document();
+        mongoTemplate.getConverter().write(lastDocument, stored);
+        Document position = new Document(FIELD_KEY, field)
+                .append(DIRECTION_KEY, direction.name())
+                .append(VALUE_KEY, stored.get(field))
+                .append(LAST_ID_KEY, stored.get(ID_FIELD));
+
+        byte[] payload = position.toJson().getBytes(StandardCharsets.UTF_8);
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+
+        return encoder.encodeToString(payload)
+                + SIGNATURE_SEPARATOR
+                + encoder.encodeToString(cursorSigner.sign(payload));
+    }
+
+    private Document decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        int separator = cursor.indexOf(SIGNATURE_SEPARATOR);
+        if (separator < 0) {
+            throw new InvalidQueryParameterException(INVALID_CURSOR_ERROR);
+        }
+        try {
+            Base64.Decoder decoder = Base64.getUrlDecoder();
+            byte[] payload = decoder.decode(cursor.substring(0, separator));
+            byte[] signature = decoder.decode(cursor.substring(separator + 1));
+            if (!cursorSigner.verify(payload, signature)) {
+                throw new InvalidQueryParameterException(INVALID_CURSOR_ERROR);
+            }
+
+            Document position = Document.parse(new String(payload, StandardCharsets.UTF_8));
+            if (!(position.get(FIELD_KEY) instanceof String)
+                    || !position.containsKey(LAST_ID_KEY)
+                    || Sort.Direction.fromOptionalString(position.getString(DIRECTION_KEY))
+                    .isEmpty()) {
+                throw new InvalidQueryParameterException(INVALID_CURSOR_ERROR);
+            }
+
+            return position;
+        } catch (IllegalArgumentException | JsonParseException | ClassCastException e) {
+            throw new InvalidQueryParameterException(INVALID_CURSOR_ERROR);
+        }
+    }
+}
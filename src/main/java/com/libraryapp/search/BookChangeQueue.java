@@ -0,0 +1,57 @@
+package com.libraryapp.search;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+// Applies book changes on one background thread, so the request that changed a book never
+// waits for the read an update needs. A book changed again before its update ran is read once.
+@Slf4j
+class BookChangeQueue {
+
+    private final Set<String> pendingBookIds = ConcurrentHashMap.newKeySet();
+    private final ExecutorService executor;
+    private final Consumer<String> update;
+
+    BookChangeQueue(String name, Consumer<String> update) {
+        this.update = update;
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(name + "-");
+        threadFactory.setDaemon(true);
+        executor = Executors.newSingleThreadExecutor(threadFactory);
+    }
+
+    void submit(String bookId) {
+        if (pendingBookIds.add(bookId)) {
+            executor.execute(() -> apply(bookId));
+        }
+    }
+
+    // Returns once every change submitted before has been applied
+    void await() throws InterruptedException {
+        try {
+            executor.submit(() -> { }).get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void apply(String bookId) {
+        // Removed first, so a change arriving during the update is applied after it
+        pendingBookIds.remove(bookId);
+        try {
+            update.accept(bookId);
+        } catch (RuntimeException e) {
+            // Corrected by the next change of the book or the next rebuild
+            log.warn("Could not apply the change of book {}", bookId, e);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.libraryapp.search;
+
+import com.libraryapp.dto.book.BookResponseDto;
+import com.libraryapp.event.BookChangedEvent;
+import com.libraryapp.exception.custom.InvalidQueryParameterException;
+import com.libraryapp.mapper.BookMapper;
+import com.libraryapp.model.Book;
+import com.libraryapp.repository.BookRepository;
+import com.libraryapp.repository.support.CursorPage;
+import com.libraryapp.search.InvertedIndex.SearchHit;
+import com.libraryapp.search.InvertedIndex.SearchPosition;
+import jakarta.annotation.PreDestroy;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+// Answers catalog searches from memory; Mongo is only read to build and update the index
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BookSearchIndex {
+
+    private static final String INVALID_CURSOR_ERROR = "Invalid cursor.";
+    private static final String EMPTY_QUERY_ERROR = "Search query must contain a word.";
+
+    private final MongoTemplate mongoTemplate;
+    private final BookRepository bookRepository;
+    private final BookMapper bookMapper;
+    private final BookChangeQueue changes = new BookChangeQueue("book-search-index", this::apply);
+
+    private volatile InvertedIndex index = new InvertedIndex();
+    // Books changed while a rebuild streams the collection, replayed before it is swapped in
+    private Set<String> changedDuringRebuild;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        CompletableFuture.runAsync(this::rebuild);
+    }
+
+    public void rebuild() {
+        synchronized (this) {
+            changedDuringRebuild = new HashSet<>();
+        }
+
+        long start = System.currentTimeMillis();
+        InvertedIndex rebuilt = new InvertedIndex();
+        Query query = Query.query(Criteria.where("isDeleted").is(false));
+        try (Stream<Book> books = mongoTemplate.stream(query, Book.class)) {
+            books.forEach(book -> rebuilt.put(bookMapper.toDto(book)));
+        } catch (DataAccessException e) {
+            log.error("Could not build the search index", e);
+            synchronized (this) {
+                changedDuringRebuild = null;
+            }
+            return;
+        }
+
+        synchronized (this) {
+            changedDuringRebuild.forEach(bookId -> reload(rebuilt, bookId));
+            changedDuringRebuild = null;
+            index = rebuilt;
+        }
+        log.info("Indexed {} books for search in {} ms",
+                rebuilt.size(), System.currentTimeMillis() - start);
+    }
+
+    @EventListener
+    public void onBookChanged(BookChangedEvent event) {
+        changes.submit(event.bookId());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        changes.shutdown();
+    }
+
+    public CursorPage<BookResponseDto> search(
+            String query, boolean fuzzy, String cursor, int size) {
+        List<String> terms = Tokenizer.tokenize(query);
+        if (terms.isEmpty()) {
+            throw new InvalidQueryParameterException(EMPTY_QUERY_ERROR);
+        }
+
+        // One extra hit tells whether there is a next page
+        List<SearchHit> hits = index.search(terms, fuzzy, decode(cursor), size + 1);
+        if (hits.size() <= size) {
+            return new CursorPage<>(hits.stream().map(SearchHit::book).toList(), null);
+        }
+
+        List<SearchHit> content = hits.subList(0, size);
+        return new CursorPage<>(content.stream().map(SearchHit::book).toList(),
+                encode(content.get(size - 1)));
+    }
+
+    // Waits for the changes published so far to be indexed
+    void awaitChanges() throws InterruptedException {
+        changes.await();
+    }
+
+    private synchronized void apply(String bookId) {
+        if (changedDuringRebuild != null) {
+            changedDuringRebuild.add(bookId);
+        }
+        reload(index, bookId);
+    }
+
+    private void reload(InvertedIndex target, String bookId) {
+        bookRepository.findById(bookId)
+                .filter(book -> !book.getIsDeleted())
+                .map(bookMapper::toDto)
+                .ifPresentOrElse(target::put, () -> target.remove(bookId));
+    }
+
+    private static String encode(SearchHit hit) {
+        byte[] bookId = hit.book().id().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(Float.BYTES + bookId.length)
+                .putFloat(hit.score())
+                .put(bookId);
+
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+
+    private static SearchPosition decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Base64.getUrlDecoder().decode(cursor));
+            float score = buffer.getFloat();
+            if (!buffer.hasRemaining()) {
+                throw new InvalidQueryParameterException(INVALID_CURSOR_ERROR);
+            }
+            return new SearchPosition(score, StandardCharsets.UTF_8.decode(buffer).toString());
+        } catch (IllegalArgumentException | BufferUnderflowException e) {
+            throw new InvalidQueryParameterException(INVALID_CURSOR_ERROR);
+        }
+    }
+}
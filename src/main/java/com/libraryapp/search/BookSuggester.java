@@ -0,0 +1,240 @@
+package com.libraryapp.search;
+
+import com.libraryapp.event.BookChangedEvent;
+import com.libraryapp.exception.custom.InvalidQueryParameterException;
+import com.libraryapp.model.Book;
+import com.libraryapp.model.Loan;
+import com.libraryapp.repository.BookRepository;
+import com.libraryapp.search.SuggestionTrie.Suggestion;
+import jakarta.annotation.PreDestroy;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+// Typeahead over titles and authors. Readers only touch the current trie snapshot;
+// changes are patched into a copy, and the nightly rebuild swaps in a fresh one
+@Slf4j
+@Component
+public class BookSuggester {
+
+    private static final String EMPTY_PREFIX_ERROR = "Prefix must contain a letter or digit.";
+
+    private final MongoTemplate mongoTemplate;
+    private final BookRepository bookRepository;
+    private final int topK;
+    private final BookChangeQueue changes = new BookChangeQueue("book-suggester", this::apply);
+
+    private volatile SuggestionTrie trie;
+    // What the trie was built from, guarded by this so that changes can be patched in
+    private Map<String, IndexedBook> booksById = new HashMap<>();
+    private Map<String, SuggestionCount> countsByKey = new HashMap<>();
+    // Books changed while a rebuild reads the collections, replayed before it is swapped in
+    private Set<String> changedDuringRebuild;
+
+    public BookSuggester(
+            MongoTemplate mongoTemplate,
+            BookRepository bookRepository,
+            @Value("${catalog.suggest.top-k}") int topK) {
+        this.mongoTemplate = mongoTemplate;
+        this.bookRepository = bookRepository;
+        this.topK = topK;
+        trie = SuggestionTrie.empty(topK);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        CompletableFuture.runAsync(this::rebuild);
+    }
+
+    // Also resets the popularity drift of incremental patches, which only see new loans
+    @Scheduled(cron = "${catalog.suggest.rebuild-cron}")
+    public void rebuild() {
+        synchronized (this) {
+            changedDuringRebuild = new HashSet<>();
+        }
+
+        final long start = System.currentTimeMillis();
+        Map<String, IndexedBook> books;
+        try {
+            books = loadBooks(countLoansByBook());
+        } catch (DataAccessException e) {
+            log.error("Could not build the suggestions", e);
+            synchronized (this) {
+                changedDuringRebuild = null;
+            }
+            return;
+        }
+        Map<String, SuggestionCount> counts = new HashMap<>();
+        books.values().forEach(book -> count(counts, book, 1));
+        TreeMap<String, Suggestion> suggestions = new TreeMap<>();
+        counts.forEach((key, count) -> suggestions.put(key, count.toSuggestion()));
+        final SuggestionTrie rebuilt = SuggestionTrie.build(suggestions, topK);
+
+        synchronized (this) {
+            booksById = books;
+            countsByKey = counts;
+            trie = rebuilt;
+            changedDuringRebuild.forEach(this::patch);
+            changedDuringRebuild = null;
+        }
+        log.info("Built {} suggestions in {} ms",
+                suggestions.size(), System.currentTimeMillis() - start);
+    }
+
+    @EventListener
+    public void onBookChanged(BookChangedEvent event) {
+        changes.submit(event.bookId());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        changes.shutdown();
+    }
+
+    public List<String> suggest(String prefix) {
+        String key = normalize(prefix);
+        if (key.isEmpty()) {
+            throw new InvalidQueryParameterException(EMPTY_PREFIX_ERROR);
+        }
+
+        return trie.suggest(key).stream()
+                .map(Suggestion::text)
+                .toList();
+    }
+
+    // Waits for the changes published so far to be patched in
+    void awaitChanges() throws InterruptedException {
+        changes.await();
+    }
+
+    private synchronized void apply(String bookId) {
+        if (changedDuringRebuild != null) {
+            changedDuringRebuild.add(bookId);
+        }
+        patch(bookId);
+    }
+
+    private Map<String, Long> countLoansByBook() {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("isDeleted").is(false)),
+                Aggregation.group("bookId").count().as("loans"));
+        Map<String, Long> loansByBookId = new HashMap<>();
+        try (Stream<Document> counts =
+                     mongoTemplate.aggregateStream(aggregation, Loan.class, Document.class)) {
+            counts.forEach(count -> loansByBookId.put(
+                    count.getString("_id"), ((Number) count.get("loans")).longValue()));
+        }
+
+        return loansByBookId;
+    }
+
+    private Map<String, IndexedBook> loadBooks(Map<String, Long> loansByBookId) {
+        Query query = Query.query(Criteria.where("isDeleted").is(false));
+        query.fields().include("title", "author", "isBorrowed");
+        Map<String, IndexedBook> books = new HashMap<>();
+        try (Stream<Book> stream = mongoTemplate.stream(query, Book.class)) {
+            stream.forEach(book -> books.put(book.getId(), new IndexedBook(
+                    book.getTitle(),
+                    book.getAuthor(),
+                    Boolean.TRUE.equals(book.getIsBorrowed()),
+                    loansByBookId.getOrDefault(book.getId(), 0L))));
+        }
+
+        return books;
+    }
+
+    private void patch(String bookId) {
+        IndexedBook previous = booksById.get(bookId);
+        IndexedBook current = bookRepository.findById(bookId)
+                .filter(book -> !book.getIsDeleted())
+                .map(book -> toIndexedBook(book, previous))
+                .orElse(null);
+        if (Objects.equals(previous, current)) {
+            return;
+        }
+
+        Set<String> changedKeys = new HashSet<>();
+        if (previous != null) {
+            booksById.remove(bookId);
+            changedKeys.addAll(count(countsByKey, previous, -1));
+        }
+        if (current != null) {
+            booksById.put(bookId, current);
+            changedKeys.addAll(count(countsByKey, current, 1));
+        }
+
+        SuggestionTrie patched = trie;
+        for (String key : changedKeys) {
+            SuggestionCount count = countsByKey.get(key);
+            patched = patched.with(key, count == null ? null : count.toSuggestion());
+        }
+        trie = patched;
+    }
+
+    // A book that was just borrowed counts as one more loan
+    private static IndexedBook toIndexedBook(Book book, IndexedBook previous) {
+        boolean borrowed = Boolean.TRUE.equals(book.getIsBorrowed());
+        long loans = previous == null ? 0 : previous.loans();
+        if (borrowed && (previous == null || !previous.borrowed())) {
+            loans++;
+        }
+
+        return new IndexedBook(book.getTitle(), book.getAuthor(), borrowed, loans);
+    }
+
+    // Adds or, with a negative sign, subtracts a book; returns the keys it affects
+    private static Set<String> count(
+            Map<String, SuggestionCount> counts, IndexedBook book, int sign) {
+        Set<String> keys = new HashSet<>();
+        for (String value : new String[] {book.title(), book.author()}) {
+            String key = normalize(value);
+            if (key.isEmpty() || !keys.add(key)) {
+                continue;
+            }
+            SuggestionCount count = counts.get(key);
+            int bookCount = (count == null ? 0 : count.books()) + sign;
+            long loans = (count == null ? 0 : count.loans()) + sign * book.loans();
+            if (bookCount <= 0) {
+                counts.remove(key);
+            } else {
+                counts.put(key, new SuggestionCount(
+                        count == null ? value : count.text(), bookCount, loans));
+            }
+        }
+
+        return keys;
+    }
+
+    private static String normalize(String value) {
+        return String.join(" ", Tokenizer.tokenize(value));
+    }
+
+    private record IndexedBook(String title, String author, boolean borrowed, long loans) {
+    }
+
+    // The first spelling seen is shown for every book that normalizes to the same key
+    private record SuggestionCount(String text, int books, long loans) {
+
+        Suggestion toSuggestion() {
+            return new Suggestion(text, loans);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.libraryapp.search;
+
+// Optimal string alignment distance: Damerau-Levenshtein where a transposition counts as
+// one edit, e.g. "tolkein" is one edit from "tolkien"
+final class EditDistance {
+
+    private EditDistance() {
+    }
+
+    // Stops as soon as the distance is known to exceed max, and then returns max + 1
+    static int distance(String source, String target, int max) {
+        if (Math.abs(source.length() - target.length()) > max) {
+            return max + 1;
+        }
+
+        int[] beforePrevious = new int[target.length() + 1];
+        int[] previous = new int[target.length() + 1];
+        int[] current = new int[target.length() + 1];
+        for (int j = 0; j <= target.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= source.length(); i++) {
+            current[0] = i;
+            int rowMinimum = i;
+            for (int j = 1; j <= target.length(); j++) {
+                int cost = source.charAt(i - 1) == target.charAt(j - 1) ? 0 : 1;
+                int distance = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1),
+                        previous[j - 1] + cost);
+                if (i > 1 && j > 1 && source.charAt(i - 1) == target.charAt(j - 2)
+                        && source.charAt(i - 2) == target.charAt(j - 1)) {
+                    distance = Math.min(distance, beforePrevious[j - 2] + 1);
+                }
+                current[j] = distance;
+                rowMinimum = Math.min(rowMinimum, distance);
+            }
+            // Distances never shrink from one row to the next
+            if (rowMinimum > max) {
+                return max + 1;
+            }
+
+            int[] recycled = beforePrevious;
+            beforePrevious = previous;
+            previous = current;
+            current = recycled;
+        }
+
+        return Math.min(previous[target.length()], max + 1);
+    }
+}
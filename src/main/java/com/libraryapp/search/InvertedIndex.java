@@ -0,0 +1,318 @@
+package com.libraryapp.search;
+
+import com.libraryapp.dto.book.BookResponseDto;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Books by the words of their title, author and category, ranked with BM25
+public class InvertedIndex {
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    // Removed documents are dropped once they make up a quarter of the index
+    private static final int MIN_REMOVED_TO_COMPACT = 1024;
+    // Bounds the work of a fuzzy search: misspellings of a word that count, and how many
+    private static final int MAX_EXPANSIONS = 16;
+    private static final Comparator<SearchHit> RANKING = Comparator
+            .comparingDouble(SearchHit::score).reversed()
+            .thenComparing(hit -> hit.book().id());
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, PostingList> postings = new HashMap<>();
+    private final TrigramIndex trigrams = new TrigramIndex();
+    private final Map<String, Integer> ordinalsByBookId = new HashMap<>();
+    // Ordinal -> book, null once removed
+    private final List<BookResponseDto> books = new ArrayList<>();
+    private int[] lengths = new int[16];
+    private long totalLength;
+    private int removedCount;
+
+    public void put(BookResponseDto book) {
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = ordinalsByBookId.get(book.id());
+            if (ordinal != null && hasSameText(books.get(ordinal), book)) {
+                // Borrowing and returning only change fields that aren't searched
+                books.set(ordinal, book);
+                return;
+            }
+            if (ordinal != null) {
+                removeOrdinal(ordinal);
+            }
+            add(book);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String bookId) {
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = ordinalsByBookId.get(bookId);
+            if (ordinal != null) {
+                removeOrdinal(ordinal);
+                compactIfNeeded();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ordinalsByBookId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // The best hits ranked strictly after the given position, or from the top without one.
+    // Fuzzy searches also match words a few typos away, weighted down by their distance
+    public List<SearchHit> search(
+            List<String> terms, boolean fuzzy, SearchPosition after, int limit) {
+        lock.readLock().lock();
+        try {
+            Map<String, Float> weights = new LinkedHashMap<>();
+            for (String term : terms) {
+                weights.merge(term, 1f, Math::max);
+                if (fuzzy && getMaxEdits(term) > 0) {
+                    trigrams.findSimilar(term, getMaxEdits(term), MAX_EXPANSIONS)
+                            .forEach(similar -> weights.merge(
+                                    similar.term(), 1f / (1 + similar.distance()), Math::max));
+                }
+            }
+
+            List<PostingList> lists = new ArrayList<>();
+            List<Float> listWeights = new ArrayList<>();
+            weights.forEach((term, weight) -> {
+                PostingList list = postings.get(term);
+                if (list != null && list.liveCount() > 0) {
+                    lists.add(list);
+                    listWeights.add(weight);
+                }
+            });
+            if (lists.isEmpty()) {
+                return List.of();
+            }
+
+            return collectTopHits(lists, listWeights, after, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Walks the posting lists together, one document at a time, keeping the best in a heap.
+    // Once the heap is full, lists whose best contributions add up to less than its worst
+    // hit can't produce a hit by themselves (MaxScore), so candidates only come from the
+    // others and frequent words are skipped through instead of scored document by document
+    private List<SearchHit> collectTopHits(
+            List<PostingList> lists, List<Float> weights, SearchPosition after, int limit) {
+        int count = lists.size();
+        float[] idfs = new float[count];
+        for (int i = 0; i < count; i++) {
+            idfs[i] = weights.get(i) * idf(ordinalsByBookId.size(), lists.get(i).liveCount());
+        }
+        // By their upper bound, a term frequency so high that the length doesn't matter
+        Integer[] order = new Integer[count];
+        Arrays.setAll(order, i -> i);
+        Arrays.sort(order, Comparator.comparingDouble(i -> idfs[i]));
+        PostingList[] sortedLists = new PostingList[count];
+        float[] sortedIdfs = new float[count];
+        // Sum of the upper bounds of the lists before each index
+        double[] boundsBefore = new double[count + 1];
+        for (int i = 0; i < count; i++) {
+            sortedLists[i] = lists.get(order[i]);
+            sortedIdfs[i] = idfs[order[i]];
+            boundsBefore[i + 1] = boundsBefore[i] + sortedIdfs[i] * (K1 + 1);
+        }
+
+        float averageLength = (float) totalLength / Math.max(1, ordinalsByBookId.size());
+        int[] positions = new int[count];
+        float[] contributions = new float[count];
+        int firstEssential = 0;
+        float threshold = Float.NEGATIVE_INFINITY;
+        PriorityQueue<SearchHit> worstFirst = new PriorityQueue<>(RANKING.reversed());
+        while (true) {
+            while (firstEssential < count && boundsBefore[firstEssential + 1] < threshold) {
+                firstEssential++;
+            }
+            int ordinal = Integer.MAX_VALUE;
+            for (int i = firstEssential; i < count; i++) {
+                if (positions[i] < sortedLists[i].size()) {
+                    ordinal = Math.min(ordinal, sortedLists[i].ordinal(positions[i]));
+                }
+            }
+            if (ordinal == Integer.MAX_VALUE) {
+                break;
+            }
+
+            float lengthNorm = K1 * (1 - B + B * lengths[ordinal] / averageLength);
+            Arrays.fill(contributions, 0);
+            double partialScore = 0;
+            for (int i = firstEssential; i < count; i++) {
+                contributions[i] =
+                        score(sortedLists[i], positions, i, ordinal, sortedIdfs[i], lengthNorm);
+                partialScore += contributions[i];
+            }
+            // The full score is only compared with the heap, so rounding can't drop a tie
+            boolean competitive = true;
+            for (int i = firstEssential - 1; i >= 0 && competitive; i--) {
+                competitive = partialScore + boundsBefore[i + 1] >= threshold;
+                if (competitive) {
+                    positions[i] = sortedLists[i].advance(positions[i], ordinal);
+                    contributions[i] = score(
+                            sortedLists[i], positions, i, ordinal, sortedIdfs[i], lengthNorm);
+                    partialScore += contributions[i];
+                }
+            }
+            if (!competitive) {
+                continue;
+            }
+            // Summed in list order, so a book gets the same score whichever lists were
+            // essential when it was reached, and page cursors compare equal scores
+            float score = sum(contributions);
+
+            BookResponseDto book = books.get(ordinal);
+            if (book == null
+                    || (after != null && !after.isBefore(score, book.id()))
+                    || (worstFirst.size() == limit
+                    && !isBetter(score, book.id(), worstFirst.peek()))) {
+                continue;
+            }
+            worstFirst.offer(new SearchHit(book, score));
+            if (worstFirst.size() > limit) {
+                worstFirst.poll();
+            }
+            if (worstFirst.size() == limit) {
+                threshold = worstFirst.peek().score();
+            }
+        }
+
+        List<SearchHit> hits = new ArrayList<>(worstFirst);
+        hits.sort(RANKING);
+        return hits;
+    }
+
+    private static float sum(float[] contributions) {
+        double sum = 0;
+        for (float contribution : contributions) {
+            sum += contribution;
+        }
+        return (float) sum;
+    }
+
+    private static boolean isBetter(float score, String bookId, SearchHit hit) {
+        return score > hit.score()
+                || (score == hit.score() && bookId.compareTo(hit.book().id()) < 0);
+    }
+
+    // BM25 contribution of one list to a document, moving the list past it
+    private static float score(PostingList list, int[] positions, int index, int ordinal,
+                               float idf, float lengthNorm) {
+        int position = positions[index];
+        if (position >= list.size() || list.ordinal(position) != ordinal) {
+            return 0;
+        }
+
+        positions[index]++;
+        int frequency = list.frequency(position);
+        return idf * frequency * (K1 + 1) / (frequency + lengthNorm);
+    }
+
+    private void add(BookResponseDto book) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        List<String> tokens = Tokenizer.tokenize(getText(book));
+        tokens.forEach(token -> frequencies.merge(token, 1, Integer::sum));
+
+        int ordinal = books.size();
+        books.add(book);
+        if (ordinal == lengths.length) {
+            lengths = Arrays.copyOf(lengths, ordinal * 2);
+        }
+        lengths[ordinal] = tokens.size();
+        totalLength += tokens.size();
+        ordinalsByBookId.put(book.id(), ordinal);
+        // New ordinals are always the largest, so every posting list stays sorted
+        frequencies.forEach((term, frequency) -> postings.computeIfAbsent(term, t -> {
+            trigrams.add(t);
+            return new PostingList();
+        }).add(ordinal, frequency));
+    }
+
+    private void removeOrdinal(int ordinal) {
+        BookResponseDto book = books.set(ordinal, null);
+        ordinalsByBookId.remove(book.id());
+        totalLength -= lengths[ordinal];
+        removedCount++;
+        new LinkedHashSet<>(Tokenizer.tokenize(getText(book)))
+                .forEach(term -> postings.get(term).markRemoved());
+    }
+
+    // Re-adds the remaining books, which also drops terms no book uses anymore
+    private void compactIfNeeded() {
+        if (removedCount < MIN_REMOVED_TO_COMPACT || removedCount * 4 < books.size()) {
+            return;
+        }
+
+        final List<BookResponseDto> remaining = books.stream().filter(Objects::nonNull).toList();
+        postings.clear();
+        trigrams.clear();
+        ordinalsByBookId.clear();
+        books.clear();
+        totalLength = 0;
+        removedCount = 0;
+        remaining.forEach(this::add);
+    }
+
+    // Short words have too many neighbours for typos in them to be told apart
+    private static int getMaxEdits(String term) {
+        if (term.length() < 4) {
+            return 0;
+        }
+
+        return term.length() < 8 ? 1 : 2;
+    }
+
+    private static float idf(int documentCount, int documentFrequency) {
+        return (float) Math.log(
+                1 + (documentCount - documentFrequency + 0.5) / (documentFrequency + 0.5));
+    }
+
+    private static String getText(BookResponseDto book) {
+        return Stream.of(book.title(), book.author(), book.category())
+                .filter(Objects::nonNull)
+                .collect(Collectors.joining(" "));
+    }
+
+    private static boolean hasSameText(BookResponseDto indexed, BookResponseDto book) {
+        return Objects.equals(indexed.title(), book.title())
+                && Objects.equals(indexed.author(), book.author())
+                && Objects.equals(indexed.category(), book.category());
+    }
+
+    public record SearchHit(BookResponseDto book, float score) {
+    }
+
+    // The last hit of a page: higher scores come first, ties go by book id
+    public record SearchPosition(float score, String bookId) {
+
+        boolean isBefore(float otherScore, String otherBookId) {
+            return otherScore < score
+                    || (otherScore == score && otherBookId.compareTo(bookId) > 0);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.libraryapp.search;
+
+import java.util.Arrays;
+
+// Ordinals of the documents containing a term, ascending, with the term's count in each.
+// Plain int arrays keep millions of postings off the heap's object count
+final class PostingList {
+
+    private static final int INITIAL_CAPACITY = 4;
+
+    private int[] ordinals = new int[INITIAL_CAPACITY];
+    private int[] frequencies = new int[INITIAL_CAPACITY];
+    private int size;
+    // Postings of removed documents stay until the index is compacted
+    private int liveCount;
+
+    void add(int ordinal, int frequency) {
+        if (size == ordinals.length) {
+            ordinals = Arrays.copyOf(ordinals, size * 2);
+            frequencies = Arrays.copyOf(frequencies, size * 2);
+        }
+        ordinals[size] = ordinal;
+        frequencies[size] = frequency;
+        size++;
+        liveCount++;
+    }
+
+    void markRemoved() {
+        liveCount--;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int liveCount() {
+        return liveCount;
+    }
+
+    int ordinal(int position) {
+        return ordinals[position];
+    }
+
+    int frequency(int position) {
+        return frequencies[position];
+    }
+
+    // First position at or after the given one holding an ordinal of at least target,
+    // galloping ahead before a binary search
+    int advance(int position, int target) {
+        int low = position;
+        int step = 1;
+        while (low + step < size && ordinals[low + step] < target) {
+            low += step;
+            step *= 2;
+        }
+
+        int high = Math.min(low + step, size);
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (ordinals[middle] < target) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+}
@@ -0,0 +1,205 @@
+package com.libraryapp.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SortedMap;
+
+// Radix trie over normalized titles and authors in which every node keeps the most popular
+// suggestions below it, so a lookup is just a walk down the prefix. Nodes never change:
+// updates copy the path from the root, and readers keep the snapshot they started on
+final class SuggestionTrie {
+
+    static final Comparator<Suggestion> BY_POPULARITY = Comparator
+            .comparingLong(Suggestion::popularity).reversed()
+            .thenComparing(Suggestion::text);
+    private static final Node[] NO_CHILDREN = new Node[0];
+    private static final Suggestion[] NO_SUGGESTIONS = new Suggestion[0];
+
+    private final Node root;
+    private final int topK;
+
+    private SuggestionTrie(Node root, int topK) {
+        this.root = root;
+        this.topK = topK;
+    }
+
+    static SuggestionTrie empty(int topK) {
+        return new SuggestionTrie(new Node("", null, NO_CHILDREN, NO_SUGGESTIONS), topK);
+    }
+
+    // Keys must not be empty
+    static SuggestionTrie build(SortedMap<String, Suggestion> suggestions, int topK) {
+        if (suggestions.isEmpty()) {
+            return empty(topK);
+        }
+
+        SuggestionTrie trie = empty(topK);
+        String[] keys = suggestions.keySet().toArray(String[]::new);
+        Suggestion[] values = suggestions.values().toArray(Suggestion[]::new);
+        return new SuggestionTrie(trie.buildNode(keys, values, 0, keys.length, 0, ""), topK);
+    }
+
+    // Adds, replaces or, given null, removes the suggestion stored under a key
+    SuggestionTrie with(String key, Suggestion suggestion) {
+        return new SuggestionTrie(insert(root, key, 0, suggestion), topK);
+    }
+
+    List<Suggestion> suggest(String prefix) {
+        Node node = root;
+        int offset = 0;
+        while (offset < prefix.length()) {
+            int index = findChild(node.children, prefix.charAt(offset));
+            if (index < 0) {
+                return List.of();
+            }
+            Node child = node.children[index];
+            int common = commonPrefixLength(child.label, prefix, offset);
+            // The prefix may end halfway through an edge
+            if (offset + common == prefix.length()) {
+                return List.of(child.top);
+            }
+            if (common < child.label.length()) {
+                return List.of();
+            }
+            node = child;
+            offset += common;
+        }
+
+        return List.of(node.top);
+    }
+
+    // Keys in [from, to) are sorted and share their first offset characters
+    private Node buildNode(
+            String[] keys, Suggestion[] values, int from, int to, int offset, String label) {
+        Suggestion terminal = null;
+        int start = from;
+        if (keys[start].length() == offset) {
+            terminal = values[start];
+            start++;
+        }
+
+        List<Node> children = new ArrayList<>();
+        while (start < to) {
+            char first = keys[start].charAt(offset);
+            int end = start + 1;
+            while (end < to && keys[end].charAt(offset) == first) {
+                end++;
+            }
+            // Sorted keys share the prefix their first and last one share
+            String rest = keys[start].substring(offset);
+            int common = commonPrefixLength(rest, keys[end - 1], offset);
+            children.add(buildNode(keys, values, start, end, offset + common,
+                    rest.substring(0, common)));
+            start = end;
+        }
+
+        return node(label, terminal, children.toArray(NO_CHILDREN));
+    }
+
+    private Node insert(Node node, String key, int offset, Suggestion suggestion) {
+        if (offset == key.length()) {
+            return node(node.label, suggestion, node.children);
+        }
+
+        int index = findChild(node.children, key.charAt(offset));
+        if (index < 0) {
+            if (suggestion == null) {
+                return node;
+            }
+            Node leaf = node(key.substring(offset), suggestion, NO_CHILDREN);
+            return node(node.label, node.terminal, insertAt(node.children, -index - 1, leaf));
+        }
+
+        Node child = node.children[index];
+        int common = commonPrefixLength(child.label, key, offset);
+        if (common < child.label.length()) {
+            if (suggestion == null) {
+                return node;
+            }
+            // The key leaves the edge halfway, so the edge is split where they part
+            Node tail = new Node(
+                    child.label.substring(common), child.terminal, child.children, child.top);
+            child = node(child.label.substring(0, common), null, new Node[] {tail});
+        }
+
+        Node updated = insert(child, key, offset + common, suggestion);
+        Node[] children = updated.terminal == null && updated.children.length == 0
+                ? removeAt(node.children, index)
+                : replaceAt(node.children, index, updated);
+        return node(node.label, node.terminal, children);
+    }
+
+    private Node node(String label, Suggestion terminal, Node[] children) {
+        List<Suggestion> candidates = new ArrayList<>();
+        if (terminal != null) {
+            candidates.add(terminal);
+        }
+        for (Node child : children) {
+            candidates.addAll(Arrays.asList(child.top));
+        }
+        candidates.sort(BY_POPULARITY);
+
+        Suggestion[] top = candidates.subList(0, Math.min(topK, candidates.size()))
+                .toArray(NO_SUGGESTIONS);
+        return new Node(label, terminal, children, top);
+    }
+
+    // Children are sorted by their first character, which is unique among siblings
+    private static int findChild(Node[] children, char first) {
+        int low = 0;
+        int high = children.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            char middleFirst = children[middle].label.charAt(0);
+            if (middleFirst < first) {
+                low = middle + 1;
+            } else if (middleFirst > first) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+
+        return -low - 1;
+    }
+
+    private static int commonPrefixLength(String label, String key, int offset) {
+        int length = 0;
+        while (length < label.length() && offset + length < key.length()
+                && label.charAt(length) == key.charAt(offset + length)) {
+            length++;
+        }
+
+        return length;
+    }
+
+    private static Node[] insertAt(Node[] children, int index, Node child) {
+        Node[] copy = new Node[children.length + 1];
+        System.arraycopy(children, 0, copy, 0, index);
+        copy[index] = child;
+        System.arraycopy(children, index, copy, index + 1, children.length - index);
+        return copy;
+    }
+
+    private static Node[] replaceAt(Node[] children, int index, Node child) {
+        Node[] copy = children.clone();
+        copy[index] = child;
+        return copy;
+    }
+
+    private static Node[] removeAt(Node[] children, int index) {
+        Node[] copy = new Node[children.length - 1];
+        System.arraycopy(children, 0, copy, 0, index);
+        System.arraycopy(children, index + 1, copy, index, children.length - index - 1);
+        return copy;
+    }
+
+    // Popularity is the number of loans of the books with that title or by that author
+    record Suggestion(String text, long popularity) {
+    }
+
+    private record Node(String label, Suggestion terminal, Node[] children, Suggestion[] top) {
+    }
+}
@@ -0,0 +1,102 @@
+package com.libraryapp.search;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Terms by their trigrams, to find the few that are within some edits of a misspelled word
+// without comparing it to the whole vocabulary. Not thread-safe, InvertedIndex guards it
+final class TrigramIndex {
+
+    private static final char BOUNDARY = '$';
+    // An edit changes at most three trigrams, a transposition four
+    private static final int TRIGRAMS_PER_EDIT = 4;
+    private static final Comparator<SimilarTerm> CLOSEST_FIRST = Comparator
+            .comparingInt(SimilarTerm::distance)
+            .thenComparing(SimilarTerm::term);
+
+    private final List<String> terms = new ArrayList<>();
+    // Trigram -> ids of the terms containing it, the frequency being its count in the term
+    private final Map<String, PostingList> termsByTrigram = new HashMap<>();
+
+    void add(String term) {
+        int id = terms.size();
+        terms.add(term);
+        getTrigrams(term).forEach((trigram, count) ->
+                termsByTrigram.computeIfAbsent(trigram, t -> new PostingList()).add(id, count));
+    }
+
+    void clear() {
+        terms.clear();
+        termsByTrigram.clear();
+    }
+
+    // Terms at most maxEdits away, closest first
+    List<SimilarTerm> findSimilar(String term, int maxEdits, int limit) {
+        Map<String, Integer> trigrams = getTrigrams(term);
+        List<PostingList> lists = new ArrayList<>();
+        List<Integer> counts = new ArrayList<>();
+        trigrams.forEach((trigram, count) -> {
+            PostingList list = termsByTrigram.get(trigram);
+            if (list != null) {
+                lists.add(list);
+                counts.add(count);
+            }
+        });
+
+        // Walks the lists together, counting the trigrams each term shares with the word
+        List<SimilarTerm> similarTerms = new ArrayList<>();
+        int[] positions = new int[lists.size()];
+        while (true) {
+            int id = Integer.MAX_VALUE;
+            for (int i = 0; i < lists.size(); i++) {
+                if (positions[i] < lists.get(i).size()) {
+                    id = Math.min(id, lists.get(i).ordinal(positions[i]));
+                }
+            }
+            if (id == Integer.MAX_VALUE) {
+                break;
+            }
+
+            int shared = 0;
+            for (int i = 0; i < lists.size(); i++) {
+                PostingList list = lists.get(i);
+                if (positions[i] < list.size() && list.ordinal(positions[i]) == id) {
+                    shared += Math.min(counts.get(i), list.frequency(positions[i]));
+                    positions[i]++;
+                }
+            }
+
+            String candidate = terms.get(id);
+            // A word has as many trigrams as characters, so too few shared means too many edits
+            int required = Math.max(term.length(), candidate.length())
+                    - TRIGRAMS_PER_EDIT * maxEdits;
+            if (shared < required) {
+                continue;
+            }
+            int distance = EditDistance.distance(term, candidate, maxEdits);
+            if (distance <= maxEdits) {
+                similarTerms.add(new SimilarTerm(candidate, distance));
+            }
+        }
+
+        similarTerms.sort(CLOSEST_FIRST);
+        return similarTerms.subList(0, Math.min(limit, similarTerms.size()));
+    }
+
+    // Padded, so that the first and last characters are in as many trigrams as the others
+    private static Map<String, Integer> getTrigrams(String term) {
+        String padded = BOUNDARY + term + BOUNDARY;
+        Map<String, Integer> trigrams = new HashMap<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            trigrams.merge(padded.substring(i, i + 3), 1, Integer::sum);
+        }
+
+        return trigrams;
+    }
+
+    record SimilarTerm(String term, int distance) {
+    }
+}
@@ -2,6 +2,7 @@ package com.libraryapp.security;
 
 import com.libraryapp.dto.user.UserLoginRequestDto;
 import com.libraryapp.dto.user.UserLoginResponseDto;
+import com.libraryapp.model.User;
 import com.libraryapp.security.util.JwtUtil;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -20,7 +21,7 @@ public class AuthenticationService {
         Authentication authentication = authenticationManager.authenticate(
                 new UsernamePasswordAuthenticationToken(request.email(), request.password())
         );
-        String token = jwtUtil.generateToken(authentication.getName());
+        String token = jwtUtil.generateToken((User) authentication.getPrincipal());
 
         return new UserLoginResponseDto(token);
     }
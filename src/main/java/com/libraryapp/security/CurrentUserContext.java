@@ -0,0 +1,25 @@
+package com.libraryapp.security;
+
+import com.libraryapp.model.User;
+import java.util.function.Supplier;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.annotation.RequestScope;
+
+@Component
+@RequestScope
+public class CurrentUserContext {
+
+    private User user;
+
+    public User getOrLoad(Supplier<User> userLoader) {
+        if (user == null) {
+            user = userLoader.get();
+        }
+
+        return user;
+    }
+
+    public void setUser(User user) {
+        this.user = user;
+    }
+}
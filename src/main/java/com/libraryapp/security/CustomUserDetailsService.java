@@ -1,21 +1,60 @@
 package com.libraryapp.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.libraryapp.event.UserChangedEvent;
+import com.libraryapp.model.User;
 import com.libraryapp.repository.UserRepository;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
-@RequiredArgsConstructor
 @Service
 public class CustomUserDetailsService implements UserDetailsService {
 
+    private static final String CACHE_NAME = "userDetails";
+
     private final UserRepository userRepository;
+    // Email -> user. Changes made on other nodes are picked up once the entry expires.
+    // Callers get copies, so nothing they change leaks into the cache or other requests.
+    private final Cache<String, User> userDetailsCache;
+
+    public CustomUserDetailsService(
+            UserRepository userRepository,
+            MeterRegistry meterRegistry,
+            @Value("${security.user-details-cache.maximum-size}") long maximumSize,
+            @Value("${security.user-details-cache.ttl-seconds}") long ttlSeconds) {
+        this.userRepository = userRepository;
+        userDetailsCache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, userDetailsCache, CACHE_NAME);
+    }
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        return userRepository.findByEmail(username)
-                .orElseThrow(() -> new UsernameNotFoundException("Can't find username by email"));
+        User user = userDetailsCache.get(username,
+                email -> userRepository.findByEmail(email).orElse(null));
+        if (user == null) {
+            throw new UsernameNotFoundException("Can't find username by email");
+        }
+
+        User copy = new User();
+        BeanUtils.copyProperties(user, copy);
+        return copy;
+    }
+
+    @EventListener
+    public void onUserChanged(UserChangedEvent event) {
+        userDetailsCache.invalidate(event.user().getEmail());
     }
 }
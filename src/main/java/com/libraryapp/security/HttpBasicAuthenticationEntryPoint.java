@@ -0,0 +1,55 @@
+package com.libraryapp.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.libraryapp.exception.ErrorResponse;
+import com.libraryapp.exception.custom.PasswordHashingUnavailableException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.web.AuthenticationEntryPoint;
+import org.springframework.security.web.authentication.www.BasicAuthenticationEntryPoint;
+import org.springframework.stereotype.Component;
+
+@Component
+public class HttpBasicAuthenticationEntryPoint implements AuthenticationEntryPoint {
+
+    private static final String REALM_NAME = "Realm";
+
+    private final ObjectMapper objectMapper;
+    private final BasicAuthenticationEntryPoint delegate;
+
+    public HttpBasicAuthenticationEntryPoint(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.delegate = new BasicAuthenticationEntryPoint();
+        this.delegate.setRealmName(REALM_NAME);
+    }
+
+    @Override
+    public void commence(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            AuthenticationException authException) throws IOException {
+        if (!(authException instanceof PasswordHashingUnavailableException)) {
+            delegate.commence(request, response, authException);
+            return;
+        }
+
+        // Saturated hashing is an overload, not bad credentials, so the client should retry
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER,
+                PasswordHashingUnavailableException.RETRY_AFTER_SECONDS);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+
+        ErrorResponse body = new ErrorResponse(
+                LocalDateTime.now(),
+                HttpStatus.SERVICE_UNAVAILABLE,
+                List.of(authException.getMessage()));
+        objectMapper.writeValue(response.getOutputStream(), body);
+    }
+}
@@ -1,6 +1,8 @@
 package com.libraryapp.security;
 
+import com.libraryapp.model.User;
 import com.libraryapp.security.util.JwtUtil;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -22,6 +24,8 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtUtil jwtUtil;
     private final UserDetailsService userDetailsService;
+    private final SecurityVersionRegistry securityVersionRegistry;
+    private final CurrentUserContext currentUserContext;
 
     @Override
     protected void doFilterInternal(
@@ -30,18 +34,40 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             FilterChain filterChain) throws ServletException, IOException {
         String token = getToken(request);
 
-        if (token != null && jwtUtil.isValidToken(token)) {
-            String username = jwtUtil.getUsername(token);
-            UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-            Authentication authentication = new UsernamePasswordAuthenticationToken(
-                    userDetails, null, userDetails.getAuthorities()
-            );
-            SecurityContextHolder.getContext().setAuthentication(authentication);
+        if (token != null) {
+            Claims claims = jwtUtil.getVerifiedClaims(token);
+            UserDetails userDetails = getUserDetails(claims);
+
+            if (userDetails.isEnabled()) {
+                Authentication authentication = new UsernamePasswordAuthenticationToken(
+                        userDetails, null, userDetails.getAuthorities()
+                );
+                SecurityContextHolder.getContext().setAuthentication(authentication);
+            }
         }
 
         filterChain.doFilter(request, response);
     }
 
+    private UserDetails getUserDetails(Claims claims) {
+        String userId = claims.get(JwtUtil.USER_ID_CLAIM, String.class);
+        String role = claims.get(JwtUtil.ROLE_CLAIM, String.class);
+        Long securityVersion = claims.get(JwtUtil.SECURITY_VERSION_CLAIM, Long.class);
+
+        if (userId != null && role != null && securityVersion != null
+                && securityVersionRegistry.isCurrent(userId, securityVersion)) {
+            return new AuthenticatedUser(userId, claims.getSubject(), User.Role.valueOf(role));
+        }
+
+        // The user was changed or deleted after the token was issued, so the claims are stale
+        UserDetails userDetails = userDetailsService.loadUserByUsername(claims.getSubject());
+        if (userDetails instanceof User user) {
+            currentUserContext.setUser(user);
+        }
+
+        return userDetails;
+    }
+
     private String getToken(HttpServletRequest request) {
         String bearerToken = request.getHeader("Authorization");
         if (StringUtils.hasText(bearerToken) && bearerToken.startsWith("Bearer ")) {
@@ -0,0 +1,54 @@
+package com.libraryapp.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.libraryapp.event.UserChangedEvent;
+import com.libraryapp.model.User;
+import com.libraryapp.repository.UserRepository;
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+@Component
+public class SecurityVersionRegistry {
+
+    // No token is current for a deleted or missing user
+    private static final long NO_USER = Long.MAX_VALUE;
+
+    private final UserRepository userRepository;
+    // User ID -> latest security version. Misses are read from Mongo, so a restarted node or
+    // one without change streams lags behind a role change by at most the TTL.
+    private final Cache<String, Long> securityVersions;
+
+    public SecurityVersionRegistry(
+            UserRepository userRepository,
+            @Value("${security.security-version-cache.maximum-size}") long maximumSize,
+            @Value("${security.security-version-cache.ttl-seconds}") long ttlSeconds) {
+        this.userRepository = userRepository;
+        securityVersions = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+    }
+
+    public boolean isCurrent(String userId, long securityVersion) {
+        return securityVersion >= securityVersions.get(userId, this::loadSecurityVersion);
+    }
+
+    @EventListener
+    public void onUserChanged(UserChangedEvent event) {
+        User user = event.user();
+        securityVersions.asMap().merge(user.getId(), getSecurityVersion(user), Math::max);
+    }
+
+    private long loadSecurityVersion(String userId) {
+        return userRepository.findSecurityVersionById(userId)
+                .map(SecurityVersionRegistry::getSecurityVersion)
+                .orElse(NO_USER);
+    }
+
+    private static long getSecurityVersion(User user) {
+        return user.getIsDeleted() ? NO_USER : user.getSecurityVersion();
+    }
+}
@@ -0,0 +1,89 @@
+package com.libraryapp.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.libraryapp.event.UserChangedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import javax.crypto.KeyGenerator;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+@Component
+public class VerifiedCredentialsCache {
+
+    private static final String CACHE_NAME = "verifiedCredentials";
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+
+    // Raw passwords are never stored, only their MAC under a key that never leaves this process
+    private final SecretKey digestKey;
+    private final Cache<String, VerifiedCredentials> verifiedCredentials;
+
+    public VerifiedCredentialsCache(
+            MeterRegistry meterRegistry,
+            @Value("${security.credentials-cache.maximum-size}") long maximumSize,
+            @Value("${security.credentials-cache.ttl-seconds}") long ttlSeconds) {
+        digestKey = generateDigestKey();
+        verifiedCredentials = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, verifiedCredentials, CACHE_NAME);
+    }
+
+    public UserDetails getVerifiedUser(String username, String password) {
+        VerifiedCredentials credentials = verifiedCredentials.getIfPresent(username);
+        if (credentials == null
+                || !MessageDigest.isEqual(credentials.passwordDigest(), digest(password))) {
+            return null;
+        }
+
+        return credentials.userDetails();
+    }
+
+    public void put(String username, String password, UserDetails userDetails) {
+        verifiedCredentials.put(username,
+                new VerifiedCredentials(digest(password), userDetails));
+    }
+
+    @EventListener
+    public void onUserChanged(UserChangedEvent event) {
+        verifiedCredentials.invalidate(event.user().getEmail());
+    }
+
+    private byte[] digest(String password) {
+        try {
+            Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(digestKey);
+            return mac.doFinal(password.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(MAC_ALGORITHM + " is not available.", e);
+        }
+    }
+
+    private static SecretKey generateDigestKey() {
+        try {
+            KeyGenerator keyGenerator = KeyGenerator.getInstance(MAC_ALGORITHM);
+            keyGenerator.init(256, new SecureRandom());
+            return keyGenerator.generateKey();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(MAC_ALGORITHM + " is not available.", e);
+        }
+    }
+
+    private record VerifiedCredentials(
+            byte[] passwordDigest,
+            UserDetails userDetails
+    ) {
+    }
+}
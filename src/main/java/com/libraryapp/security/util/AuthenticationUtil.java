@@ -2,6 +2,8 @@ package com.libraryapp.security.util;
 
 import com.libraryapp.model.User;
 import com.libraryapp.repository.UserRepository;
+import com.libraryapp.security.AuthenticatedUser;
+import com.libraryapp.security.CurrentUserContext;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -14,6 +16,7 @@ import org.springframework.stereotype.Component;
 public class AuthenticationUtil {
 
     private final UserRepository userRepository;
+    private final CurrentUserContext currentUserContext;
 
     public boolean isManager() {
         return getAuthentication()
@@ -22,7 +25,25 @@ public class AuthenticationUtil {
                 .anyMatch(authority -> authority.getAuthority().equals("ROLE_MANAGER"));
     }
 
+    // Tokens carry the user id, so most requests get it without loading the user
+    public String getCurrentUserId() {
+        Object principal = getAuthentication().getPrincipal();
+        if (principal instanceof AuthenticatedUser authenticatedUser) {
+            return authenticatedUser.id();
+        }
+        if (principal instanceof User user) {
+            return user.getId();
+        }
+
+        return getCurrentUserFromDb().getId();
+    }
+
     public User getCurrentUserFromDb() {
+        // Resolved at most once per request, the filter may already have loaded the user
+        return currentUserContext.getOrLoad(this::findCurrentUser);
+    }
+
+    private User findCurrentUser() {
         String username = ((UserDetails) getAuthentication()
                 .getPrincipal())
                 .getUsername();
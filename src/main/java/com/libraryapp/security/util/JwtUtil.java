@@ -1,14 +1,21 @@
 package com.libraryapp.security.util;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.libraryapp.model.User;
 import io.github.cdimascio.dotenv.Dotenv;
 import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.Jws;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
 import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
-import java.util.function.Function;
+import java.util.concurrent.TimeUnit;
 import javax.crypto.SecretKey;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
@@ -16,44 +23,89 @@ import org.springframework.stereotype.Component;
 @Component
 public class JwtUtil {
 
+    public static final String USER_ID_CLAIM = "userId";
+    public static final String ROLE_CLAIM = "role";
+    public static final String SECURITY_VERSION_CLAIM = "securityVersion";
+
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+
     @Value("${jwt.expiration-minutes}")
     private long expirationMinutes;
     private final Key secret;
+    private final JwtParser parser;
+    // Token digest -> claims of an already verified token, evicted when the token expires
+    private final Cache<String, Claims> verifiedClaims;
 
-    public JwtUtil(Dotenv dotenv) {
+    public JwtUtil(Dotenv dotenv, @Value("${jwt.cache.maximum-size}") long cacheMaximumSize) {
         String secretString = dotenv.get("JWT_SECRET_STRING");
         secret = Keys.hmacShaKeyFor(secretString.getBytes(StandardCharsets.UTF_8));
+        parser = Jwts.parser()
+                .verifyWith((SecretKey) secret)
+                .build();
+        verifiedClaims = Caffeine.newBuilder()
+                .maximumSize(cacheMaximumSize)
+                .expireAfter(new TokenExpiry())
+                .build();
     }
 
-    public String generateToken(String username) {
+    public String generateToken(User user) {
         return Jwts.builder()
-                .subject(username)
+                .subject(user.getEmail())
+                .claim(USER_ID_CLAIM, user.getId())
+                .claim(ROLE_CLAIM, user.getRole().name())
+                .claim(SECURITY_VERSION_CLAIM, user.getSecurityVersion())
                 .issuedAt(new Date(System.currentTimeMillis()))
                 .expiration(new Date(System.currentTimeMillis() + (expirationMinutes * 60 * 1000)))
                 .signWith(secret)
                 .compact();
     }
 
-    public boolean isValidToken(String token) {
-        Jws<Claims> claimsJws = Jwts.parser()
-                .verifyWith((SecretKey) secret)
-                .build()
-                .parseSignedClaims(token);
+    public Claims getVerifiedClaims(String token) {
+        String tokenDigest = digest(token);
+        Claims cachedClaims = verifiedClaims.getIfPresent(tokenDigest);
+        if (cachedClaims != null && cachedClaims.getExpiration().after(new Date())) {
+            return cachedClaims;
+        }
+
+        // Throws JwtException (e.g. ExpiredJwtException) if the token can't be trusted
+        Claims claims = parser.parseSignedClaims(token).getPayload();
+        verifiedClaims.put(tokenDigest, claims);
 
-        return !claimsJws.getPayload().getExpiration().before(new Date());
+        return claims;
     }
 
-    public String getUsername(String token) {
-        return getClaimFromToken(token, Claims::getSubject);
+    private String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance(DIGEST_ALGORITHM)
+                    .digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(DIGEST_ALGORITHM + " is not available.", e);
+        }
     }
 
-    private <T> T getClaimFromToken(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = Jwts.parser()
-                .verifyWith((SecretKey) secret)
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+    private static class TokenExpiry implements Expiry<String, Claims> {
+
+        @Override
+        public long expireAfterCreate(String tokenDigest, Claims claims, long currentTime) {
+            if (claims.getExpiration() == null) {
+                return 0;
+            }
+            long millisToExpiration = claims.getExpiration().getTime() - System.currentTimeMillis();
+
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(millisToExpiration, 0));
+        }
+
+        @Override
+        public long expireAfterUpdate(String tokenDigest, Claims claims,
+                                      long currentTime, long currentDuration) {
+            return expireAfterCreate(tokenDigest, claims, currentTime);
+        }
 
-        return claimsResolver.apply(claims);
+        @Override
+        public long expireAfterRead(String tokenDigest, Claims claims,
+                                    long currentTime, long currentDuration) {
+            return currentDuration;
+        }
     }
 }
@@ -1,19 +1,36 @@
 package com.libraryapp.service;
 
+import com.libraryapp.dto.book.BookBatchResponseDto;
+import com.libraryapp.dto.book.BookFacetsDto;
 import com.libraryapp.dto.book.BookRequestDto;
 import com.libraryapp.dto.book.BookResponseDto;
+import com.libraryapp.repository.support.BookFilter;
+import com.libraryapp.repository.support.CursorPage;
 import java.util.List;
+import java.util.Set;
 import org.springframework.data.domain.Pageable;
 
 public interface BookService {
 
     BookResponseDto save(BookRequestDto bookRequestDto);
 
-    List<BookResponseDto> findAll(Pageable pageable);
+    List<BookResponseDto> findAll(BookFilter filter, Set<String> fields, Pageable pageable);
+
+    CursorPage<BookResponseDto> findAll(
+            BookFilter filter, Set<String> fields, String cursor, Pageable pageable);
+
+    CursorPage<BookResponseDto> search(
+            String query, boolean fuzzy, Set<String> fields, String cursor, Pageable pageable);
+
+    List<String> suggest(String prefix);
+
+    BookFacetsDto getFacets();
 
     BookResponseDto findById(String id);
 
+    BookBatchResponseDto findAllById(List<String> ids);
+
     void deleteById(String id);
 
-    BookResponseDto updateById(String id, BookRequestDto bookRequestDto);
+    BookResponseDto updateById(String id, BookRequestDto bookRequestDto, Long expectedVersion);
 }
@@ -1,15 +1,27 @@
 package com.libraryapp.service;
 
+import com.libraryapp.dto.loan.LoanBatchResponseDto;
 import com.libraryapp.dto.loan.LoanRequestDto;
 import com.libraryapp.dto.loan.LoanResponseDto;
+import com.libraryapp.repository.support.CursorPage;
 import java.util.List;
+import java.util.Set;
 import org.springframework.data.domain.Pageable;
 
 public interface LoanService {
 
-    List<LoanResponseDto> findAll(Pageable pageable);
+    // expand names the referenced documents to embed: book, customer or both
+    List<LoanResponseDto> findAll(Set<String> fields, Set<String> expand, Pageable pageable);
 
-    LoanResponseDto findById(String id);
+    CursorPage<LoanResponseDto> findAll(
+            Set<String> fields, Set<String> expand, String cursor, Pageable pageable);
+
+    // Cached, so it can lag behind recent changes
+    long countAll();
+
+    LoanResponseDto findById(String id, Set<String> expand);
+
+    LoanBatchResponseDto findAllById(List<String> ids);
 
     LoanResponseDto createLoan(LoanRequestDto loanRequestDto);
 
@@ -17,5 +29,5 @@ public interface LoanService {
 
     void deleteById(String id);
 
-    LoanResponseDto updateById(String id, LoanRequestDto loanRequestDto);
+    LoanResponseDto updateById(String id, LoanRequestDto loanRequestDto, Long expectedVersion);
 }
@@ -1,14 +1,35 @@
 package com.libraryapp.service.impl;
 
+import com.libraryapp.cache.BookCache;
+import com.libraryapp.cache.BookFacetsCache;
+import com.libraryapp.cache.BookLookupCoalescer;
+import com.libraryapp.dto.book.BookBatchResponseDto;
+import com.libraryapp.dto.book.BookFacetsDto;
 import com.libraryapp.dto.book.BookRequestDto;
 import com.libraryapp.dto.book.BookResponseDto;
+import com.libraryapp.event.BookChangedEvent;
+import com.libraryapp.event.BookCountsChangedEvent;
 import com.libraryapp.exception.custom.EntityNotFoundException;
+import com.libraryapp.exception.custom.PreconditionFailedException;
 import com.libraryapp.mapper.BookMapper;
 import com.libraryapp.model.Book;
 import com.libraryapp.repository.BookRepository;
+import com.libraryapp.repository.support.BookFilter;
+import com.libraryapp.repository.support.CursorPage;
+import com.libraryapp.repository.support.FieldProjection;
+import com.libraryapp.repository.support.IdBatch;
+import com.libraryapp.search.BookSearchIndex;
+import com.libraryapp.search.BookSuggester;
 import com.libraryapp.service.BookService;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
@@ -17,50 +38,140 @@ import org.springframework.stereotype.Service;
 public class BookServiceImpl implements BookService {
 
     private static final String BOOK_NOT_FOUND_ERROR = "Book doesn't exist. ID: ";
+    private static final String BOOK_VERSION_CONFLICT_ERROR = "Book has been modified. ID: ";
 
     private final BookRepository bookRepository;
+    private final BookCache bookCache;
+    private final BookFacetsCache bookFacetsCache;
+    private final BookLookupCoalescer bookLookupCoalescer;
+    private final BookSearchIndex bookSearchIndex;
+    private final BookSuggester bookSuggester;
     private final BookMapper bookMapper;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     public BookResponseDto save(BookRequestDto bookRequestDto) {
         Book book = bookMapper.toEntity(bookRequestDto);
         Book savedBook = bookRepository.save(book);
+        eventPublisher.publishEvent(new BookChangedEvent(savedBook.getId()));
+        eventPublisher.publishEvent(BookCountsChangedEvent.added(savedBook));
 
         return bookMapper.toDto(savedBook);
     }
 
     @Override
-    public List<BookResponseDto> findAll(Pageable pageable) {
-        return bookRepository.findAllByIsDeletedFalse(pageable).stream()
+    public List<BookResponseDto> findAll(
+            BookFilter filter, Set<String> fields, Pageable pageable) {
+        FieldProjection.validate(fields, BookResponseDto.class);
+        return bookCache.getPage(filter, fields, pageable, page -> bookRepository
+                .findAllByIsDeletedFalse(filter, fields, page)
+                .stream()
                 .map(bookMapper::toDto)
-                .toList();
+                .toList());
+    }
+
+    @Override
+    public CursorPage<BookResponseDto> findAll(
+            BookFilter filter, Set<String> fields, String cursor, Pageable pageable) {
+        FieldProjection.validate(fields, BookResponseDto.class);
+        return bookRepository.findAllByIsDeletedFalseAfter(
+                        filter, fields, cursor, pageable.getSort(), pageable.getPageSize())
+                .map(bookMapper::toDto);
+    }
+
+    @Override
+    public CursorPage<BookResponseDto> search(
+            String query, boolean fuzzy, Set<String> fields, String cursor, Pageable pageable) {
+        // The index holds whole books, the fields only narrow what is written
+        FieldProjection.validate(fields, BookResponseDto.class);
+        return bookSearchIndex.search(query, fuzzy, cursor, pageable.getPageSize());
+    }
+
+    @Override
+    public List<String> suggest(String prefix) {
+        return bookSuggester.suggest(prefix);
+    }
+
+    @Override
+    public BookFacetsDto getFacets() {
+        return bookFacetsCache.getFacets();
     }
 
     @Override
     public BookResponseDto findById(String id) {
-        return bookRepository.findById(id)
-                .filter(book -> !book.getIsDeleted())
+        BookResponseDto book = bookCache.getById(id, bookId -> bookLookupCoalescer.findById(bookId)
+                .filter(b -> !b.getIsDeleted())
                 .map(bookMapper::toDto)
-                .orElseThrow(() -> new EntityNotFoundException(BOOK_NOT_FOUND_ERROR + id));
+                .orElse(null));
+        if (book == null) {
+            throw new EntityNotFoundException(BOOK_NOT_FOUND_ERROR + id);
+        }
+
+        return book;
+    }
+
+    @Override
+    public BookBatchResponseDto findAllById(List<String> ids) {
+        List<String> distinctIds = IdBatch.distinct(ids);
+        // Cached books are served from memory, the rest are read in one query
+        Map<String, BookResponseDto> books = bookCache.getAllById(distinctIds, missingIds ->
+                bookRepository.findAllById(missingIds).stream()
+                        .filter(book -> !book.getIsDeleted())
+                        .map(bookMapper::toDto)
+                        .collect(Collectors.toMap(BookResponseDto::id, Function.identity())));
+
+        List<BookResponseDto> foundBooks = new ArrayList<>();
+        List<String> missingIds = new ArrayList<>();
+        for (String id : distinctIds) {
+            BookResponseDto book = books.get(id);
+            if (book == null) {
+                missingIds.add(id);
+            } else {
+                foundBooks.add(book);
+            }
+        }
+
+        return new BookBatchResponseDto(foundBooks, missingIds);
     }
 
     @Override
     public void deleteById(String id) {
-        Book existingBook = bookRepository.findById(id)
+        // Soft delete
+        Book deletedBook = bookRepository.markDeleted(id)
                 .orElseThrow(() -> new EntityNotFoundException(BOOK_NOT_FOUND_ERROR + id));
-        existingBook.setIsDeleted(true); // Soft delete
-
-        bookRepository.save(existingBook);
+        eventPublisher.publishEvent(new BookChangedEvent(id));
+        if (!deletedBook.getIsDeleted()) {
+            eventPublisher.publishEvent(BookCountsChangedEvent.removed(deletedBook));
+        }
     }
 
     @Override
-    public BookResponseDto updateById(String id, BookRequestDto bookRequestDto) {
+    public BookResponseDto updateById(
+            String id, BookRequestDto bookRequestDto, Long expectedVersion) {
         Book existingBook = bookRepository.findById(id)
                 .filter(book -> !book.getIsDeleted())
                 .orElseThrow(() -> new EntityNotFoundException(BOOK_NOT_FOUND_ERROR + id));
+        if (expectedVersion != null && !expectedVersion.equals(existingBook.getVersion())) {
+            throw new PreconditionFailedException(BOOK_VERSION_CONFLICT_ERROR + id);
+        }
 
+        // Taken before the mapper overwrites the category and author
+        final BookCountsChangedEvent removed = BookCountsChangedEvent.removed(existingBook);
         bookMapper.updateBookFromDto(existingBook, bookRequestDto);
-        Book updatedBook = bookRepository.save(existingBook);
+        // Version checked write, fails if the book changed since it was read
+        Book updatedBook;
+        try {
+            updatedBook = bookRepository.save(existingBook);
+        } catch (OptimisticLockingFailureException e) {
+            // Only a failed If-Match is a precondition, a plain concurrent update stays a 409
+            if (expectedVersion == null) {
+                throw e;
+            }
+            throw new PreconditionFailedException(BOOK_VERSION_CONFLICT_ERROR + id);
+        }
+        eventPublisher.publishEvent(new BookChangedEvent(id));
+        eventPublisher.publishEvent(removed);
+        eventPublisher.publishEvent(BookCountsChangedEvent.added(updatedBook));
 
         return bookMapper.toDto(updatedBook);
     }
@@ -1,25 +1,48 @@
 package com.libraryapp.service.impl;
 
+import com.libraryapp.cache.BookLookupCoalescer;
+import com.libraryapp.cache.LoanCountCache;
+import com.libraryapp.dto.loan.LoanBatchResponseDto;
 import com.libraryapp.dto.loan.LoanRequestDto;
 import com.libraryapp.dto.loan.LoanResponseDto;
+import com.libraryapp.event.BookChangedEvent;
+import com.libraryapp.event.BookCountsChangedEvent;
+import com.libraryapp.event.LoanChangedEvent;
 import com.libraryapp.exception.custom.BookAlreadyLoanedException;
 import com.libraryapp.exception.custom.EntityNotFoundException;
+import com.libraryapp.exception.custom.InvalidQueryParameterException;
 import com.libraryapp.exception.custom.LoanAlreadyReturnedException;
+import com.libraryapp.exception.custom.PreconditionFailedException;
 import com.libraryapp.exception.custom.UnauthorizedViewException;
 import com.libraryapp.mapper.LoanMapper;
 import com.libraryapp.model.Book;
 import com.libraryapp.model.Loan;
+import com.libraryapp.model.User;
 import com.libraryapp.repository.BookRepository;
 import com.libraryapp.repository.LoanRepository;
+import com.libraryapp.repository.UserRepository;
+import com.libraryapp.repository.support.CursorPage;
+import com.libraryapp.repository.support.FieldProjection;
+import com.libraryapp.repository.support.IdBatch;
 import com.libraryapp.security.util.AuthenticationUtil;
 import com.libraryapp.service.LoanService;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Service
 @RequiredArgsConstructor
@@ -27,32 +50,73 @@ public class LoanServiceImpl implements LoanService {
 
     private static final String LOAN_NOT_FOUND_ERROR = "Loan doesn't exist. ID: ";
     private static final String BOOK_NOT_FOUND_ERROR = "Book doesn't exist. ID: ";
+    private static final String LOAN_VERSION_CONFLICT_ERROR = "Loan has been modified. ID: ";
+    private static final String EXPAND_BOOK = "book";
+    private static final String EXPAND_CUSTOMER = "customer";
+    private static final Set<String> EXPANDABLE_REFERENCES = Set.of(EXPAND_BOOK, EXPAND_CUSTOMER);
 
     private final LoanRepository loanRepository;
+    private final LoanCountCache loanCountCache;
     private final BookRepository bookRepository;
+    private final BookLookupCoalescer bookLookupCoalescer;
+    private final UserRepository userRepository;
     private final LoanMapper loanMapper;
     private final AuthenticationUtil authenticationUtil;
+    private final ObjectProvider<TransactionTemplate> transactionTemplateProvider;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
-    public List<LoanResponseDto> findAll(Pageable pageable) {
-        Page<Loan> loansPage;
+    public List<LoanResponseDto> findAll(
+            Set<String> fields, Set<String> expand, Pageable pageable) {
+        FieldProjection.validate(fields, LoanResponseDto.class);
+        validateExpand(expand);
+        Set<String> readFields = getReadFields(fields, expand);
+        Slice<Loan> loansPage;
 
         // Manager will see all non-deleted loans
         if (authenticationUtil.isManager()) {
-            loansPage = loanRepository.findAllByIsDeletedFalse(pageable);
+            loansPage = loanRepository.findAllByIsDeletedFalse(readFields, pageable);
         } else {
             // Customer will only see his non-deleted loans
             loansPage = loanRepository.findAllByCustomerIdAndIsDeletedFalse(
-                    authenticationUtil.getCurrentUserFromDb().getId(), pageable);
+                    authenticationUtil.getCurrentUserId(), readFields, pageable);
         }
 
-        return loansPage.stream()
-                .map(loanMapper::toDto)
-                .collect(Collectors.toList());
+        return toDtos(loansPage.getContent(), expand);
     }
 
     @Override
-    public LoanResponseDto findById(String id) {
+    public CursorPage<LoanResponseDto> findAll(
+            Set<String> fields, Set<String> expand, String cursor, Pageable pageable) {
+        FieldProjection.validate(fields, LoanResponseDto.class);
+        validateExpand(expand);
+        Set<String> readFields = getReadFields(fields, expand);
+        CursorPage<Loan> loansPage;
+
+        if (authenticationUtil.isManager()) {
+            loansPage = loanRepository.findAllByIsDeletedFalseAfter(
+                    readFields, cursor, pageable.getSort(), pageable.getPageSize());
+        } else {
+            loansPage = loanRepository.findAllByCustomerIdAndIsDeletedFalseAfter(
+                    authenticationUtil.getCurrentUserId(),
+                    readFields, cursor, pageable.getSort(), pageable.getPageSize());
+        }
+
+        return new CursorPage<>(toDtos(loansPage.content(), expand), loansPage.nextCursor());
+    }
+
+    @Override
+    public long countAll() {
+        if (authenticationUtil.isManager()) {
+            return loanCountCache.countAll();
+        }
+
+        return loanCountCache.countByCustomerId(authenticationUtil.getCurrentUserId());
+    }
+
+    @Override
+    public LoanResponseDto findById(String id, Set<String> expand) {
+        validateExpand(expand);
         Loan loan = loanRepository.findById(id)
                 .filter(l -> !l.getIsDeleted())
                 .orElseThrow(() -> new EntityNotFoundException(LOAN_NOT_FOUND_ERROR + id));
@@ -61,79 +125,218 @@ public class LoanServiceImpl implements LoanService {
             validateCurrentUserOwnsLoan(loan);
         }
 
-        return loanMapper.toDto(loan);
+        return toDtos(List.of(loan), expand).get(0);
+    }
+
+    @Override
+    public LoanBatchResponseDto findAllById(List<String> ids) {
+        List<String> distinctIds = IdBatch.distinct(ids);
+        boolean isManager = authenticationUtil.isManager();
+        String currentUserId = isManager ? null : authenticationUtil.getCurrentUserId();
+        // Other customers' loans are reported as missing, so their ids reveal nothing
+        Map<String, Loan> loans = loanRepository.findAllById(distinctIds).stream()
+                .filter(loan -> !loan.getIsDeleted())
+                .filter(loan -> isManager || loan.getCustomerId().equals(currentUserId))
+                .collect(Collectors.toMap(Loan::getId, Function.identity()));
+
+        List<LoanResponseDto> foundLoans = new ArrayList<>();
+        List<String> missingIds = new ArrayList<>();
+        for (String id : distinctIds) {
+            Loan loan = loans.get(id);
+            if (loan == null) {
+                missingIds.add(id);
+            } else {
+                foundLoans.add(loanMapper.toDto(loan));
+            }
+        }
+
+        return new LoanBatchResponseDto(foundLoans, missingIds);
     }
 
     @Override
     public LoanResponseDto createLoan(LoanRequestDto loanRequestDto) {
         String bookId = loanRequestDto.bookId();
-        Book bookToLoan = bookRepository.findById(bookId)
-                .orElseThrow(() -> new EntityNotFoundException(BOOK_NOT_FOUND_ERROR + bookId));
+        final String customerId = authenticationUtil.getCurrentUserId();
 
-        if (bookToLoan.getIsBorrowed()) {
-            throw new BookAlreadyLoanedException("This book is already loaned.");
+        // Single conditional write, so two customers can't borrow the same copy
+        if (bookRepository.markBorrowedIfAvailable(bookId) == 0) {
+            throw getBorrowFailure(bookId);
         }
-
-        bookToLoan.setIsBorrowed(true);
-        bookRepository.save(bookToLoan);
+        eventPublisher.publishEvent(new BookChangedEvent(bookId));
+        eventPublisher.publishEvent(BookCountsChangedEvent.borrowed());
 
         Loan loan = loanMapper.toEntity(loanRequestDto);
         loan.setBorrowedDate(LocalDate.now());
-        loan.setCustomerId(authenticationUtil.getCurrentUserFromDb().getId());
-        Loan savedLoan = loanRepository.save(loan);
+        loan.setCustomerId(customerId);
+        Loan savedLoan;
+        try {
+            savedLoan = loanRepository.save(loan);
+        } catch (RuntimeException e) {
+            // Compensate the checkout
+            if (bookRepository.markAvailable(bookId) > 0) {
+                eventPublisher.publishEvent(BookCountsChangedEvent.returned());
+            }
+            eventPublisher.publishEvent(new BookChangedEvent(bookId));
+            throw e;
+        }
+        eventPublisher.publishEvent(new LoanChangedEvent(customerId));
 
         return loanMapper.toDto(savedLoan);
     }
 
     @Override
     public LoanResponseDto returnLoan(String id) {
+        // Present only when mongodb.transactions.enabled is set (requires a replica set)
+        TransactionTemplate transactionTemplate = transactionTemplateProvider.getIfAvailable();
+        ReturnedLoan returned = transactionTemplate == null
+                ? markLoanReturned(id)
+                : transactionTemplate.execute(status -> markLoanReturned(id));
+        // Published after the commit, so a cache can't be refilled with the borrowed state
+        eventPublisher.publishEvent(new BookChangedEvent(returned.loan().getBookId()));
+        eventPublisher.publishEvent(new LoanChangedEvent(returned.loan().getCustomerId()));
+        if (returned.bookReturned()) {
+            eventPublisher.publishEvent(BookCountsChangedEvent.returned());
+        }
+
+        return loanMapper.toDto(returned.loan());
+    }
+
+    @Override
+    public void deleteById(String id) {
+        // Soft delete
+        Loan deletedLoan = loanRepository.markDeleted(id)
+                .orElseThrow(() -> new EntityNotFoundException(LOAN_NOT_FOUND_ERROR + id));
+        if (!deletedLoan.getIsDeleted()) {
+            eventPublisher.publishEvent(new LoanChangedEvent(deletedLoan.getCustomerId()));
+        }
+    }
+
+    @Override
+    public LoanResponseDto updateById(
+            String id, LoanRequestDto loanRequestDto, Long expectedVersion) {
         Loan existingLoan = loanRepository.findById(id)
                 .filter(loan -> !loan.getIsDeleted())
                 .orElseThrow(() -> new EntityNotFoundException(LOAN_NOT_FOUND_ERROR + id));
+        if (expectedVersion != null && !expectedVersion.equals(existingLoan.getVersion())) {
+            throw new PreconditionFailedException(LOAN_VERSION_CONFLICT_ERROR + id);
+        }
 
-        if (existingLoan.getReturnedDate() != null) {
-            throw new LoanAlreadyReturnedException("This loan has already been returned.");
+        loanMapper.updateLoanFromDto(existingLoan, loanRequestDto);
+        // Version checked write, fails if the loan changed since it was read
+        Loan updatedLoan;
+        try {
+            updatedLoan = loanRepository.save(existingLoan);
+        } catch (OptimisticLockingFailureException e) {
+            // Lost a race with another update, a precondition failure if the client sent If-Match
+            if (expectedVersion == null) {
+                throw e;
+            }
+            throw new PreconditionFailedException(LOAN_VERSION_CONFLICT_ERROR + id);
         }
 
-        existingLoan.setReturnedDate(LocalDate.now());
+        return loanMapper.toDto(updatedLoan);
+    }
 
-        String bookId = existingLoan.getBookId();
-        Book loanedBook = bookRepository.findById(bookId)
-                .orElseThrow(() -> new EntityNotFoundException(BOOK_NOT_FOUND_ERROR + bookId));
-        loanedBook.setIsBorrowed(false);
+    private static void validateExpand(Set<String> expand) {
+        for (String reference : expand) {
+            if (!EXPANDABLE_REFERENCES.contains(reference)) {
+                throw new InvalidQueryParameterException(
+                        "Loans can't expand '" + reference + "'.");
+            }
+        }
+    }
 
-        Loan savedLoan = loanRepository.save(existingLoan);
-        bookRepository.save(loanedBook);
+    // Expanding needs the reference ids even when the client didn't ask for them
+    private static Set<String> getReadFields(Set<String> fields, Set<String> expand) {
+        if (fields.isEmpty() || expand.isEmpty()) {
+            return fields;
+        }
 
-        return loanMapper.toDto(savedLoan);
+        Set<String> readFields = new HashSet<>(fields);
+        if (expand.contains(EXPAND_BOOK)) {
+            readFields.add("bookId");
+        }
+        if (expand.contains(EXPAND_CUSTOMER)) {
+            readFields.add("customerId");
+        }
+
+        return readFields;
     }
 
-    @Override
-    public void deleteById(String id) {
-        Loan loan = loanRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(LOAN_NOT_FOUND_ERROR + id));
-        loan.setIsDeleted(true); // soft delete
+    // One $in query per expanded collection, however many loans there are
+    private List<LoanResponseDto> toDtos(List<Loan> loans, Set<String> expand) {
+        if (expand.isEmpty() || loans.isEmpty()) {
+            return loans.stream()
+                    .map(loanMapper::toDto)
+                    .toList();
+        }
 
-        loanRepository.save(loan);
+        Map<String, Book> books = expand.contains(EXPAND_BOOK)
+                ? bookRepository.findAllById(getReferencedIds(loans, Loan::getBookId)).stream()
+                        .filter(book -> !book.getIsDeleted())
+                        .collect(Collectors.toMap(Book::getId, Function.identity()))
+                : Map.of();
+        Map<String, User> customers = expand.contains(EXPAND_CUSTOMER)
+                ? userRepository.findAllWithoutPasswordByIdIn(
+                                getReferencedIds(loans, Loan::getCustomerId)).stream()
+                        .filter(user -> !user.getIsDeleted())
+                        .collect(Collectors.toMap(User::getId, Function.identity()))
+                : Map.of();
+
+        return loans.stream()
+                .map(loan -> loanMapper.toDto(loan,
+                        books.get(loan.getBookId()), customers.get(loan.getCustomerId())))
+                .toList();
     }
 
-    @Override
-    public LoanResponseDto updateById(String id, LoanRequestDto loanRequestDto) {
-        Loan existingLoan = loanRepository.findById(id)
+    private static Set<String> getReferencedIds(List<Loan> loans, Function<Loan, String> getter) {
+        return loans.stream()
+                .map(getter)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+    }
+
+    private ReturnedLoan markLoanReturned(String id) {
+        // Conditional update, so a concurrent return of the same loan can't succeed twice
+        Loan returnedLoan = loanRepository.markReturned(id, LocalDate.now())
+                .orElseThrow(() -> getReturnFailure(id));
+        long booksReturned = bookRepository.markAvailable(returnedLoan.getBookId());
+
+        return new ReturnedLoan(returnedLoan, booksReturned > 0);
+    }
+
+    private RuntimeException getReturnFailure(String id) {
+        boolean loanExists = loanRepository.findById(id)
                 .filter(loan -> !loan.getIsDeleted())
-                .orElseThrow(() -> new EntityNotFoundException(LOAN_NOT_FOUND_ERROR + id));
+                .isPresent();
+        if (!loanExists) {
+            return new EntityNotFoundException(LOAN_NOT_FOUND_ERROR + id);
+        }
 
-        loanMapper.updateLoanFromDto(existingLoan, loanRequestDto);
-        loanRepository.save(existingLoan);
+        return new LoanAlreadyReturnedException("This loan has already been returned.");
+    }
 
-        return loanMapper.toDto(existingLoan);
+    private RuntimeException getBorrowFailure(String bookId) {
+        // Only reached when the checkout didn't match, so the extra read is off the happy path
+        boolean bookExists = bookLookupCoalescer.findById(bookId)
+                .filter(book -> !Boolean.TRUE.equals(book.getIsDeleted()))
+                .isPresent();
+        if (!bookExists) {
+            return new EntityNotFoundException(BOOK_NOT_FOUND_ERROR + bookId);
+        }
+
+        return new BookAlreadyLoanedException("This book is already loaned.");
     }
 
     private void validateCurrentUserOwnsLoan(Loan loan) {
         String loanOwnerId = loan.getCustomerId();
 
-        if (!loanOwnerId.equals(authenticationUtil.getCurrentUserFromDb().getId())) {
+        if (!loanOwnerId.equals(authenticationUtil.getCurrentUserId())) {
             throw new UnauthorizedViewException("You are not authorized to view this loan.");
         }
     }
+
+    // bookReturned is false if the book wasn't marked as borrowed anymore
+    private record ReturnedLoan(Loan loan, boolean bookReturned) {
+    }
 }
@@ -4,6 +4,7 @@ import com.libraryapp.dto.user.UserRegistrationRequestDto;
 import com.libraryapp.dto.user.UserResponseDto;
 import com.libraryapp.dto.user.UserRoleUpdateRequestDto;
 import com.libraryapp.dto.user.UserUpdateRequestDto;
+import com.libraryapp.event.UserChangedEvent;
 import com.libraryapp.exception.custom.RegistrationException;
 import com.libraryapp.mapper.UserMapper;
 import com.libraryapp.model.User;
@@ -11,6 +12,7 @@ import com.libraryapp.repository.UserRepository;
 import com.libraryapp.security.util.AuthenticationUtil;
 import com.libraryapp.service.UserService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
@@ -25,6 +27,7 @@ public class UserServiceImpl implements UserService {
     private final UserMapper userMapper;
     private final PasswordEncoder passwordEncoder;
     private final AuthenticationUtil authenticationUtil;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     public UserResponseDto register(UserRegistrationRequestDto requestDto)
@@ -36,47 +39,45 @@ public class UserServiceImpl implements UserService {
         User user = userMapper.toEntity(requestDto);
         user.setPassword(passwordEncoder.encode(requestDto.password()));
         User savedUser = userRepository.save(user);
+        eventPublisher.publishEvent(new UserChangedEvent(savedUser));
 
         return userMapper.toDto(savedUser);
     }
 
     @Override
     public UserResponseDto setRole(String id, UserRoleUpdateRequestDto request) {
-        User user = userRepository.findById(id)
+        User updatedUser = userRepository.updateRole(id, request.role())
                 .orElseThrow(() -> new UsernameNotFoundException(USER_NOT_FOUND_MESSAGE));
-        user.setRole(request.role());
-        User updatedUser = userRepository.save(user);
+        eventPublisher.publishEvent(new UserChangedEvent(updatedUser));
 
         return userMapper.toDto(updatedUser);
     }
 
     @Override
     public UserResponseDto getProfile() {
-        User user = authenticationUtil.getCurrentUserFromDb();
-        if (user.getIsDeleted()) {
-            throw new UsernameNotFoundException(USER_NOT_FOUND_MESSAGE);
-        }
+        User user = userRepository.findWithoutPasswordById(authenticationUtil.getCurrentUserId())
+                .filter(u -> !u.getIsDeleted())
+                .orElseThrow(() -> new UsernameNotFoundException(USER_NOT_FOUND_MESSAGE));
 
         return userMapper.toDto(user);
     }
 
     @Override
     public void deleteById(String id) {
-        User user = userRepository.findById(id)
+        User deletedUser = userRepository.markDeleted(id) // Soft delete
                 .orElseThrow(() -> new UsernameNotFoundException(USER_NOT_FOUND_MESSAGE));
-        user.setIsDeleted(true); // Soft delete
-
-        userRepository.save(user);
+        eventPublisher.publishEvent(new UserChangedEvent(deletedUser));
     }
 
     @Override
     public UserResponseDto updateProfile(UserUpdateRequestDto request) {
-        User user = authenticationUtil.getCurrentUserFromDb();
-        if (user.getIsDeleted()) {
-            throw new UsernameNotFoundException(USER_NOT_FOUND_MESSAGE);
-        }
+        // A fresh entity, the one resolved for authentication may be shared
+        User user = userRepository.findById(authenticationUtil.getCurrentUserId())
+                .filter(u -> !u.getIsDeleted())
+                .orElseThrow(() -> new UsernameNotFoundException(USER_NOT_FOUND_MESSAGE));
         userMapper.updateUserFromDto(user, request);
         User updatedUser = userRepository.save(user);
+        eventPublisher.publishEvent(new UserChangedEvent(updatedUser));
 
         return userMapper.toDto(updatedUser);
     }
@@ -0,0 +1,161 @@
+package com.libraryapp.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.libraryapp.dto.book.BookResponseDto;
+import com.libraryapp.event.BookChangedEvent;
+import com.libraryapp.repository.support.BookFilter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+
+public class BookCacheTest {
+
+    private static final BookResponseDto BOOK =
+            new BookResponseDto("1", "Title", "Author", "Category", false, 0L);
+
+    @Test
+    @DisplayName("Verify that a changed book and all cached pages are reloaded")
+    void onBookChanged_CachedBookAndPage_ReloadsBoth() {
+        // Given
+        BookCache bookCache = getBookCache(true);
+        AtomicInteger loads = new AtomicInteger();
+        bookCache.getById("1", id -> load(loads));
+        getPage(bookCache, BookFilter.NONE, 0, loads);
+
+        // When
+        bookCache.onBookChanged(new BookChangedEvent("1"));
+        bookCache.getById("1", id -> load(loads));
+        getPage(bookCache, BookFilter.NONE, 0, loads);
+
+        // Then
+        assertThat(loads).hasValue(4);
+    }
+
+    @Test
+    @DisplayName("Verify that a page loaded while a book changed is not served afterwards")
+    void onBookChanged_DuringPageLoad_ReloadsPage() throws Exception {
+        // Given
+        BookCache bookCache = getBookCache(true);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        final CompletableFuture<Void> staleLoad = CompletableFuture.runAsync(() ->
+                bookCache.getPage(BookFilter.NONE, Set.of(), PageRequest.of(0, 10), p -> {
+                    loading.countDown();
+                    await(release);
+                    return List.of(load(loads));
+                }));
+        loading.await(5, TimeUnit.SECONDS);
+
+        // When
+        bookCache.onBookChanged(new BookChangedEvent("1"));
+        release.countDown();
+        staleLoad.get(5, TimeUnit.SECONDS);
+        getPage(bookCache, BookFilter.NONE, 0, loads);
+
+        // Then
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    @DisplayName("Verify that only the first pages are cached")
+    void getPage_PageBeyondCachedPages_AlwaysLoads() {
+        // Given
+        BookCache bookCache = getBookCache(true);
+        AtomicInteger loads = new AtomicInteger();
+
+        // When
+        getPage(bookCache, BookFilter.NONE, 0, loads);
+        getPage(bookCache, BookFilter.NONE, 0, loads);
+        getPage(bookCache, BookFilter.NONE, 1, loads);
+        getPage(bookCache, BookFilter.NONE, 1, loads);
+
+        // Then
+        assertThat(loads).hasValue(3);
+    }
+
+    @Test
+    @DisplayName("Verify that pages of different filters are cached apart")
+    void getPage_DifferentFilters_LoadsEach() {
+        // Given
+        BookCache bookCache = getBookCache(true);
+        AtomicInteger loads = new AtomicInteger();
+        BookFilter fantasy = new BookFilter("Fantasy", null, true);
+
+        // When
+        getPage(bookCache, BookFilter.NONE, 0, loads);
+        getPage(bookCache, fantasy, 0, loads);
+        getPage(bookCache, fantasy, 0, loads);
+
+        // Then
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    @DisplayName("Verify that a disabled cache always loads")
+    void getById_Disabled_AlwaysLoads() {
+        // Given
+        BookCache bookCache = getBookCache(false);
+        AtomicInteger loads = new AtomicInteger();
+
+        // When
+        bookCache.getById("1", id -> load(loads));
+        BookResponseDto actual = bookCache.getById("1", id -> load(loads));
+
+        // Then
+        assertThat(actual).isEqualTo(BOOK);
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    @DisplayName("Verify that a multi-get loads only the books that aren't cached")
+    void getAllById_PartlyCached_LoadsOnlyMisses() {
+        // Given
+        BookCache bookCache = getBookCache(true);
+        AtomicInteger loads = new AtomicInteger();
+        bookCache.getById("1", id -> load(loads));
+        List<Set<String>> loadedIds = new ArrayList<>();
+
+        // When
+        Map<String, BookResponseDto> actual = bookCache.getAllById(List.of("1", "2", "3"),
+                ids -> {
+                    loadedIds.add(ids);
+                    return Map.of("2", BOOK);
+                });
+
+        // Then
+        assertThat(loadedIds).containsExactly(Set.of("2", "3"));
+        assertThat(actual).containsOnlyKeys("1", "2");
+    }
+
+    private BookCache getBookCache(boolean enabled) {
+        return new BookCache(new SimpleMeterRegistry(), enabled, 100, 60, 1);
+    }
+
+    private void getPage(BookCache bookCache, BookFilter filter, int page, AtomicInteger loads) {
+        bookCache.getPage(filter, Set.of(), PageRequest.of(page, 10), p -> List.of(load(loads)));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private BookResponseDto load(AtomicInteger loads) {
+        loads.incrementAndGet();
+        return BOOK;
+    }
+}
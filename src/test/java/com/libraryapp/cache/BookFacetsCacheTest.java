@@ -0,0 +1,127 @@
+package com.libraryapp.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.libraryapp.dto.book.BookFacetsDto;
+import com.libraryapp.dto.book.FacetCountDto;
+import com.libraryapp.event.BookCountsChangedEvent;
+import com.libraryapp.model.Book;
+import com.libraryapp.repository.BookRepository;
+import com.libraryapp.repository.support.BookFacetCounts;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class BookFacetsCacheTest {
+
+    private static final BookFacetCounts COUNTS = new BookFacetCounts(
+            Map.of("Novel", 2L, "Science Fiction", 1L),
+            Map.of("Jane Austen", 2L, "Frank Herbert", 1L),
+            3,
+            1);
+
+    private BookRepository bookRepository;
+
+    @BeforeEach
+    void setUp() {
+        bookRepository = mock(BookRepository.class);
+        when(bookRepository.countFacets(4)).thenReturn(COUNTS);
+    }
+
+    @Test
+    @DisplayName("Verify that facets are aggregated once and then adjusted by writes")
+    void getFacets_AfterWrites_ReturnsAdjustedCountsWithoutAggregating() {
+        // Given
+        BookFacetsCache bookFacetsCache =
+                new BookFacetsCache(bookRepository, new SimpleMeterRegistry(), true, 1);
+        bookFacetsCache.getFacets();
+        Book book = Book.builder().category("Science Fiction").author("Frank Herbert").build();
+
+        // When
+        bookFacetsCache.onBookCountsChanged(BookCountsChangedEvent.added(book));
+        bookFacetsCache.onBookCountsChanged(BookCountsChangedEvent.added(book));
+        bookFacetsCache.onBookCountsChanged(BookCountsChangedEvent.borrowed());
+        BookFacetsDto facets = bookFacetsCache.getFacets();
+
+        // Then
+        assertThat(facets.categories()).containsExactly(
+                new FacetCountDto("Science Fiction", 3), new FacetCountDto("Novel", 2));
+        assertThat(facets.authors()).containsExactly(new FacetCountDto("Frank Herbert", 3));
+        assertThat(facets.available()).isEqualTo(3);
+        assertThat(facets.borrowed()).isEqualTo(2);
+        verify(bookRepository, times(1)).countFacets(4);
+    }
+
+    @Test
+    @DisplayName("Verify that removing the last book of a category drops the category")
+    void onBookCountsChanged_LastBookOfCategoryRemoved_DropsCategory() {
+        // Given
+        BookFacetsCache bookFacetsCache =
+                new BookFacetsCache(bookRepository, new SimpleMeterRegistry(), true, 10);
+        when(bookRepository.countFacets(40)).thenReturn(COUNTS);
+        bookFacetsCache.getFacets();
+        Book book = Book.builder().category("Science Fiction").author("Frank Herbert")
+                .isBorrowed(true).build();
+
+        // When
+        bookFacetsCache.onBookCountsChanged(BookCountsChangedEvent.removed(book));
+        BookFacetsDto facets = bookFacetsCache.getFacets();
+
+        // Then
+        assertThat(facets.categories()).containsExactly(new FacetCountDto("Novel", 2));
+        assertThat(facets.authors()).containsExactly(new FacetCountDto("Jane Austen", 2));
+        assertThat(facets.available()).isEqualTo(2);
+        assertThat(facets.borrowed()).isZero();
+    }
+
+    @Test
+    @DisplayName("Verify that writes don't wait for the first aggregation")
+    void onBookCountsChanged_DuringFirstAggregation_DoesNotBlock() throws Exception {
+        // Given
+        BookFacetsCache bookFacetsCache =
+                new BookFacetsCache(bookRepository, new SimpleMeterRegistry(), true, 1);
+        CountDownLatch aggregating = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(bookRepository.countFacets(4)).thenAnswer(invocation -> {
+            aggregating.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return COUNTS;
+        });
+        final CompletableFuture<BookFacetsDto> facets =
+                CompletableFuture.supplyAsync(bookFacetsCache::getFacets);
+        aggregating.await(5, TimeUnit.SECONDS);
+
+        // When
+        CompletableFuture.runAsync(() -> bookFacetsCache.onBookCountsChanged(
+                        BookCountsChangedEvent.borrowed()))
+                .get(1, TimeUnit.SECONDS);
+        release.countDown();
+
+        // Then
+        assertThat(facets.get(5, TimeUnit.SECONDS).borrowed()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Verify that a disabled cache always aggregates")
+    void getFacets_Disabled_AlwaysAggregates() {
+        // Given
+        BookFacetsCache bookFacetsCache =
+                new BookFacetsCache(bookRepository, new SimpleMeterRegistry(), false, 1);
+
+        // When
+        bookFacetsCache.getFacets();
+        bookFacetsCache.getFacets();
+
+        // Then
+        verify(bookRepository, times(2)).countFacets(4);
+    }
+}
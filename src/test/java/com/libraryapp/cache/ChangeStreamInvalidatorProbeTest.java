@@ -0,0 +1,66 @@
+package com.libraryapp.cache;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoDatabase;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+// The deployment probe without a server; streaming itself is covered by ChangeStreamInvalidatorTest
+@ExtendWith(MockitoExtension.class)
+public class ChangeStreamInvalidatorProbeTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private MongoDatabase database;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private ChangeStreamInvalidator invalidator;
+
+    @BeforeEach
+    void setUp() {
+        when(mongoTemplate.getDb()).thenReturn(database);
+        invalidator = new ChangeStreamInvalidator(
+                mongoTemplate, eventPublisher, true, "node-1", 1000, 10);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        invalidator.stop();
+    }
+
+    @Test
+    @DisplayName("Verify that a failed deployment probe is retried until the server answers")
+    void start_ProbeFailsOnce_ProbesAgain() {
+        // Given
+        when(database.runCommand(any(Bson.class)))
+                .thenThrow(new MongoException("Server is electing"))
+                .thenReturn(new Document("isWritablePrimary", true));
+
+        // When
+        invalidator.start();
+
+        // Then
+        verify(database, timeout(5000).times(2)).runCommand(any(Bson.class));
+        verify(database, never()).watch(anyList());
+    }
+}
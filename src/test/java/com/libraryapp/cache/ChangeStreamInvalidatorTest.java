@@ -0,0 +1,175 @@
+package com.libraryapp.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.libraryapp.config.DotenvConfig;
+import com.libraryapp.event.BookChangedEvent;
+import com.libraryapp.event.LoanChangedEvent;
+import com.libraryapp.event.UserChangedEvent;
+import com.libraryapp.model.Book;
+import com.libraryapp.model.Loan;
+import com.libraryapp.model.User;
+import com.libraryapp.repository.support.CursorSigner;
+import com.libraryapp.repository.support.KeysetPaginator;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+// Writes straight to Mongo, as another node would, and expects the local change events
+@DataMongoTest(properties = "cache.invalidation.change-streams.enabled=true")
+@Import({ChangeStreamInvalidator.class, KeysetPaginator.class, CursorSigner.class,
+        DotenvConfig.class, ChangeStreamInvalidatorTest.EventRecorderConfig.class})
+@ActiveProfiles("test")
+@Testcontainers
+public class ChangeStreamInvalidatorTest {
+
+    private static final long TIMEOUT_SECONDS = 10;
+
+    // A single-node replica set, which is enough for change streams
+    @Container
+    private static final MongoDBContainer mongoDBContainer = new MongoDBContainer("mongo:4.4.3")
+            .withExposedPorts(27017);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ChangeStreamInvalidator changeStreamInvalidator;
+
+    @Autowired
+    private EventRecorder eventRecorder;
+
+    private final Set<String> markerIds = new HashSet<>();
+
+    @DynamicPropertySource
+    static void setProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.data.mongodb.uri", mongoDBContainer::getReplicaSetUrl);
+    }
+
+    @BeforeEach
+    void setUp() throws InterruptedException {
+        changeStreamInvalidator.start();
+        awaitStreamOpen();
+    }
+
+    @Test
+    @DisplayName("Verify that a book written elsewhere publishes a book change")
+    void bookInserted_PublishesBookChangedEvent() throws InterruptedException {
+        // Given
+        Book book = Book.builder().title("Dune").build();
+
+        // When
+        mongoTemplate.insert(book);
+
+        // Then
+        assertThat(awaitEvent()).isEqualTo(new BookChangedEvent(book.getId()));
+    }
+
+    @Test
+    @DisplayName("Verify that a user updated elsewhere publishes the updated user")
+    void userUpdated_PublishesUserChangedEvent() throws InterruptedException {
+        // Given
+        User user = new User();
+        user.setEmail("customer@library.com");
+        mongoTemplate.insert(user);
+        awaitEvent();
+
+        // When
+        mongoTemplate.updateFirst(Query.query(Criteria.where("id").is(user.getId())),
+                Update.update("role", User.Role.MANAGER).inc("securityVersion", 1), User.class);
+
+        // Then
+        Object event = awaitEvent();
+        assertThat(event).isInstanceOf(UserChangedEvent.class);
+        User changedUser = ((UserChangedEvent) event).user();
+        assertThat(changedUser.getEmail()).isEqualTo("customer@library.com");
+        assertThat(changedUser.getRole()).isEqualTo(User.Role.MANAGER);
+        assertThat(changedUser.getSecurityVersion()).isEqualTo(1L);
+    }
+
+    @Test
+    @DisplayName("Verify that a restarted node catches up on changes made while it was down")
+    void restarted_PublishesChangesMissedWhileStopped() throws InterruptedException {
+        // Given
+        changeStreamInvalidator.stop();
+        Loan loan = new Loan();
+        loan.setCustomerId("customer-1");
+        loan.setBorrowedDate(LocalDate.now());
+        mongoTemplate.insert(loan);
+
+        // When
+        changeStreamInvalidator.start();
+
+        // Then
+        assertThat(awaitEvent()).isEqualTo(new LoanChangedEvent("customer-1"));
+    }
+
+    // The stream only sees writes made after it opened, so wait for a marker write to arrive
+    private void awaitStreamOpen() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (System.nanoTime() < deadline) {
+            Book marker = mongoTemplate.insert(Book.builder().title("Marker").build());
+            markerIds.add(marker.getId());
+            Object event = eventRecorder.events.poll(200, TimeUnit.MILLISECONDS);
+            if (event instanceof BookChangedEvent bookChanged
+                    && markerIds.contains(bookChanged.bookId())) {
+                return;
+            }
+        }
+
+        throw new IllegalStateException("Change stream did not open in time");
+    }
+
+    // Skips the events of markers that were still in flight when the stream was found open
+    private Object awaitEvent() throws InterruptedException {
+        Object event;
+        do {
+            event = eventRecorder.events.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } while (event instanceof BookChangedEvent bookChanged
+                && markerIds.contains(bookChanged.bookId()));
+
+        assertThat(event).as("Published change event").isNotNull();
+        return event;
+    }
+
+    static class EventRecorder {
+
+        private final BlockingQueue<Object> events = new LinkedBlockingQueue<>();
+
+        @EventListener({BookChangedEvent.class, UserChangedEvent.class, LoanChangedEvent.class})
+        public void onChange(Object event) {
+            events.add(event);
+        }
+    }
+
+    @TestConfiguration
+    static class EventRecorderConfig {
+
+        @Bean
+        EventRecorder eventRecorder() {
+            return new EventRecorder();
+        }
+    }
+}
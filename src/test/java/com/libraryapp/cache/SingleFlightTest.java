@@ -0,0 +1,116 @@
+package com.libraryapp.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class SingleFlightTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SingleFlight<String, String> singleFlight =
+            new SingleFlight<>(meterRegistry, "test");
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Verify that a call made while an identical one is in flight shares its result")
+    void execute_ConcurrentIdenticalCalls_ExecutesOnce() throws Exception {
+        // Given
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger executions = new AtomicInteger();
+        final Future<String> first = executor.submit(() -> singleFlight.execute("1", key -> {
+            executions.incrementAndGet();
+            started.countDown();
+            await(release);
+            return "book " + key;
+        }));
+        started.await(5, TimeUnit.SECONDS);
+
+        // When
+        final Future<String> second = executor.submit(() -> singleFlight.execute("1", key -> {
+            executions.incrementAndGet();
+            return "other";
+        }));
+        awaitCollapsedCalls(1);
+        release.countDown();
+
+        // Then
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("book 1");
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("book 1");
+        assertThat(executions).hasValue(1);
+    }
+
+    @Test
+    @DisplayName("Verify that waiting calls get the exception of the call they joined")
+    void execute_InFlightCallFails_RethrowsToWaitingCalls() throws Exception {
+        // Given
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        IllegalStateException failure = new IllegalStateException("Database unavailable");
+        executor.submit(() -> singleFlight.execute("1", key -> {
+            started.countDown();
+            await(release);
+            throw failure;
+        }));
+        started.await(5, TimeUnit.SECONDS);
+
+        // When
+        Future<String> waiting = executor.submit(() -> singleFlight.execute("1", key -> "book"));
+        awaitCollapsedCalls(1);
+        release.countDown();
+
+        // Then
+        Exception actual = assertThrows(Exception.class, () -> waiting.get(5, TimeUnit.SECONDS));
+        assertThat(actual.getCause()).isSameAs(failure);
+    }
+
+    @Test
+    @DisplayName("Verify that calls made one after another are executed separately")
+    void execute_SequentialCalls_ExecutesEach() {
+        // Given
+        AtomicInteger executions = new AtomicInteger();
+
+        // When
+        singleFlight.execute("1", key -> "book " + executions.incrementAndGet());
+        String actual = singleFlight.execute("1", key -> "book " + executions.incrementAndGet());
+
+        // Then
+        assertThat(actual).isEqualTo("book 2");
+        assertThat(collapsedCalls()).isZero();
+    }
+
+    private void awaitCollapsedCalls(double expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (collapsedCalls() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private double collapsedCalls() {
+        return meterRegistry.get("single.flight.collapsed").tag("name", "test").counter().count();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
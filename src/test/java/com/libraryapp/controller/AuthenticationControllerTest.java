@@ -52,7 +52,7 @@ public class AuthenticationControllerTest {
                 "testuser@library.com", "password", "password", "Test", "User");
 
         userResponseDto = new UserResponseDto(
-                "12345", "testuser@library.com", "Test", "User", User.Role.CUSTOMER);
+                "12345", "testuser@library.com", "Test", "User", User.Role.CUSTOMER, 0L);
 
         userLoginRequestDto = new UserLoginRequestDto(
                 "testuser@library.com", "password");
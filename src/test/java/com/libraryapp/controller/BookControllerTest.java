@@ -4,15 +4,24 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.libraryapp.controller.util.CursorPageUtil;
+import com.libraryapp.dto.BatchGetRequestDto;
+import com.libraryapp.dto.book.BookBatchResponseDto;
 import com.libraryapp.dto.book.BookRequestDto;
 import com.libraryapp.dto.book.BookResponseDto;
 import com.libraryapp.exception.custom.EntityNotFoundException;
+import com.libraryapp.exception.custom.PreconditionFailedException;
+import com.libraryapp.repository.support.BookFilter;
+import com.libraryapp.repository.support.CursorPage;
 import com.libraryapp.service.BookService;
 import java.util.Collections;
+import java.util.List;
+import java.util.Set;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -21,6 +30,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
@@ -47,7 +57,7 @@ public class BookControllerTest {
                 "Book Title", "Book Author", "Book Category");
 
         bookResponseDto = new BookResponseDto(
-                "1", "Book Title", "Book Author", "Book Category", false);
+                "1", "Book Title", "Book Author", "Book Category", false, 0L);
     }
 
     @Test
@@ -55,7 +65,8 @@ public class BookControllerTest {
     @WithMockUser(roles = {"MANAGER"})
     void findAllBooks_ReturnsBookList() throws Exception {
         // Given
-        Mockito.when(bookService.findAll(Mockito.any()))
+        Mockito.when(bookService.findAll(
+                        Mockito.eq(BookFilter.NONE), Mockito.eq(Set.of()), Mockito.any()))
                 .thenReturn(Collections.singletonList(bookResponseDto));
 
         // When & Then
@@ -68,6 +79,109 @@ public class BookControllerTest {
                 .andExpect(jsonPath("$[0].category").value(bookResponseDto.category()));
     }
 
+    @Test
+    @DisplayName("Retrieve books by cursor returns the next cursor header")
+    @WithMockUser(roles = {"MANAGER"})
+    void findAllBooks_WithCursor_ReturnsNextCursorHeader() throws Exception {
+        // Given
+        Mockito.when(bookService.findAll(
+                        Mockito.any(), Mockito.any(), Mockito.eq(""), Mockito.any()))
+                .thenReturn(new CursorPage<>(List.of(bookResponseDto), "next"));
+
+        // When & Then
+        mockMvc.perform(get("/books")
+                        .param("cursor", "")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string(CursorPageUtil.NEXT_CURSOR_HEADER, "next"))
+                .andExpect(jsonPath("$[0].id").value(bookResponseDto.id()));
+    }
+
+    @Test
+    @DisplayName("Retrieve books filtered by category and availability")
+    @WithMockUser(roles = {"CUSTOMER"})
+    void findAllBooks_WithFilters_PassesFilter() throws Exception {
+        // Given
+        BookFilter filter = new BookFilter("Book Category", null, true);
+        Mockito.when(bookService.findAll(Mockito.eq(filter), Mockito.any(), Mockito.any()))
+                .thenReturn(List.of(bookResponseDto));
+
+        // When & Then
+        mockMvc.perform(get("/books")
+                        .param("category", "Book Category")
+                        .param("available", "true")
+                        .param("sort", "title")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(bookResponseDto.id()));
+    }
+
+    @Test
+    @DisplayName("Retrieve books with a sparse fieldset writes only those fields")
+    @WithMockUser(roles = {"CUSTOMER"})
+    void findAllBooks_WithFields_WritesOnlyThoseFields() throws Exception {
+        // Given
+        Mockito.when(bookService.findAll(
+                        Mockito.any(), Mockito.eq(Set.of("id", "title")), Mockito.any()))
+                .thenReturn(List.of(bookResponseDto));
+
+        // When & Then
+        mockMvc.perform(get("/books")
+                        .param("fields", "id,title")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(bookResponseDto.id()))
+                .andExpect(jsonPath("$[0].title").value(bookResponseDto.title()))
+                .andExpect(jsonPath("$[0].author").doesNotExist())
+                .andExpect(jsonPath("$[0].version").doesNotExist());
+    }
+
+    @Test
+    @DisplayName("Retrieve books by IDs lists the missing ones")
+    @WithMockUser(roles = {"CUSTOMER"})
+    void findBooksById_ReturnsBooksAndMissingIds() throws Exception {
+        // Given
+        Mockito.when(bookService.findAllById(List.of("1", "2")))
+                .thenReturn(new BookBatchResponseDto(List.of(bookResponseDto), List.of("2")));
+
+        // When & Then
+        mockMvc.perform(get("/books")
+                        .param("ids", "1,2")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.books[0].id").value("1"))
+                .andExpect(jsonPath("$.missingIds[0]").value("2"));
+    }
+
+    @Test
+    @DisplayName("Retrieve books by IDs in the body")
+    @WithMockUser(roles = {"CUSTOMER"})
+    void batchGetBooks_ValidRequest_ReturnsBooks() throws Exception {
+        // Given
+        Mockito.when(bookService.findAllById(List.of("1")))
+                .thenReturn(new BookBatchResponseDto(List.of(bookResponseDto), List.of()));
+
+        // When & Then
+        mockMvc.perform(post("/books/batch-get")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                new BatchGetRequestDto(List.of("1")))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.books[0].title").value(bookResponseDto.title()));
+    }
+
+    @Test
+    @DisplayName("Retrieve books by IDs in the body rejects an empty list")
+    @WithMockUser(roles = {"CUSTOMER"})
+    void batchGetBooks_NoIds_ReturnsBadRequest() throws Exception {
+        // When & Then
+        mockMvc.perform(post("/books/batch-get")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                new BatchGetRequestDto(List.of()))))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     @DisplayName("Retrieve a book by ID successfully")
     @WithMockUser(roles = {"MANAGER"})
@@ -80,10 +194,12 @@ public class BookControllerTest {
         mockMvc.perform(get("/books/1")
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"0\""))
                 .andExpect(jsonPath("$.id").value(bookResponseDto.id()))
                 .andExpect(jsonPath("$.title").value(bookResponseDto.title()))
                 .andExpect(jsonPath("$.author").value(bookResponseDto.author()))
-                .andExpect(jsonPath("$.category").value(bookResponseDto.category()));
+                .andExpect(jsonPath("$.category").value(bookResponseDto.category()))
+                .andExpect(jsonPath("$.version").value(bookResponseDto.version()));
     }
 
     @Test
@@ -138,7 +254,8 @@ public class BookControllerTest {
     @WithMockUser(roles = {"MANAGER"})
     void updateBookById_ValidData_ReturnsUpdatedBookResponseDto() throws Exception {
         // Given
-        Mockito.when(bookService.updateById(Mockito.anyString(), Mockito.any(BookRequestDto.class)))
+        Mockito.when(bookService.updateById(
+                        Mockito.anyString(), Mockito.any(BookRequestDto.class), Mockito.isNull()))
                 .thenReturn(bookResponseDto);
 
         // When & Then
@@ -151,4 +268,35 @@ public class BookControllerTest {
                 .andExpect(jsonPath("$.author").value(bookResponseDto.author()))
                 .andExpect(jsonPath("$.category").value(bookResponseDto.category()));
     }
+
+    @Test
+    @DisplayName("Update book by ID with a stale If-Match returns precondition failed")
+    @WithMockUser(roles = {"MANAGER"})
+    void updateBookById_StaleIfMatch_ReturnsPreconditionFailed() throws Exception {
+        // Given
+        Mockito.when(bookService.updateById(
+                        Mockito.anyString(), Mockito.any(BookRequestDto.class), Mockito.eq(3L)))
+                .thenThrow(new PreconditionFailedException("Book has been modified."));
+
+        // When & Then
+        mockMvc.perform(put("/books/1")
+                        .header(HttpHeaders.IF_MATCH, "\"3\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(bookRequestDto)))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    @DisplayName("Update book by ID with a malformed If-Match returns bad request")
+    @WithMockUser(roles = {"MANAGER"})
+    void updateBookById_MalformedIfMatch_ReturnsBadRequest() throws Exception {
+        // When & Then
+        mockMvc.perform(put("/books/1")
+                        .header(HttpHeaders.IF_MATCH, "version-3")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(bookRequestDto)))
+                .andExpect(status().isBadRequest());
+        Mockito.verify(bookService, Mockito.never()).updateById(
+                Mockito.anyString(), Mockito.any(BookRequestDto.class), Mockito.any());
+    }
 }
@@ -4,16 +4,22 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.libraryapp.dto.BatchGetRequestDto;
+import com.libraryapp.dto.book.BookResponseDto;
+import com.libraryapp.dto.loan.LoanBatchResponseDto;
 import com.libraryapp.dto.loan.LoanRequestDto;
 import com.libraryapp.dto.loan.LoanResponseDto;
 import com.libraryapp.exception.custom.EntityNotFoundException;
 import com.libraryapp.service.LoanService;
 import java.time.LocalDate;
 import java.util.Collections;
+import java.util.List;
+import java.util.Set;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -48,7 +54,7 @@ public class LoanControllerTest {
         loanRequestDto = new LoanRequestDto("12345");
 
         loanResponseDto = new LoanResponseDto(
-                "12345", "bookId", "customerId", LocalDate.now(), null);
+                "12345", "bookId", "customerId", LocalDate.now(), null, 0L, null, null);
     }
 
     @Test
@@ -56,7 +62,7 @@ public class LoanControllerTest {
     @WithMockUser(roles = {"MANAGER"})
     void findAllLoans_ReturnsLoanList() throws Exception {
         // Given
-        Mockito.when(loanService.findAll(Mockito.any(Pageable.class)))
+        Mockito.when(loanService.findAll(Mockito.any(), Mockito.any(), Mockito.any(Pageable.class)))
                 .thenReturn(Collections.singletonList(loanResponseDto));
 
         // When & Then
@@ -68,12 +74,53 @@ public class LoanControllerTest {
                 .andExpect(jsonPath("$[0].customerId").value(loanResponseDto.customerId()));
     }
 
+    @Test
+    @DisplayName("Retrieve loans with total count only when requested")
+    @WithMockUser(roles = {"MANAGER"})
+    void findAllLoans_WithTotal_ReturnsTotalCountHeader() throws Exception {
+        // Given
+        Mockito.when(loanService.findAll(Mockito.any(), Mockito.any(), Mockito.any(Pageable.class)))
+                .thenReturn(Collections.singletonList(loanResponseDto));
+        Mockito.when(loanService.countAll()).thenReturn(42L);
+
+        // When & Then
+        mockMvc.perform(get("/loans")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("X-Total-Count"));
+        mockMvc.perform(get("/loans")
+                        .param("withTotal", "true")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Total-Count", "42"))
+                .andExpect(jsonPath("$[0].id").value(loanResponseDto.id()));
+        Mockito.verify(loanService, Mockito.times(1)).countAll();
+    }
+
+    @Test
+    @DisplayName("Retrieve loans by IDs lists the missing ones")
+    @WithMockUser(roles = {"CUSTOMER"})
+    void findLoansById_ReturnsLoansAndMissingIds() throws Exception {
+        // Given
+        Mockito.when(loanService.findAllById(List.of("12345", "67890")))
+                .thenReturn(new LoanBatchResponseDto(List.of(loanResponseDto), List.of("67890")));
+
+        // When & Then
+        mockMvc.perform(post("/loans/batch-get")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                new BatchGetRequestDto(List.of("12345", "67890")))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.loans[0].id").value(loanResponseDto.id()))
+                .andExpect(jsonPath("$.missingIds[0]").value("67890"));
+    }
+
     @Test
     @DisplayName("Retrieve a loan by ID successfully")
     @WithMockUser(roles = {"MANAGER"})
     void findLoanById_ExistingLoan_ReturnsLoanResponseDto() throws Exception {
         // Given
-        Mockito.when(loanService.findById("loanId"))
+        Mockito.when(loanService.findById("loanId", Set.of()))
                 .thenReturn(loanResponseDto);
 
         // When & Then
@@ -85,12 +132,38 @@ public class LoanControllerTest {
                 .andExpect(jsonPath("$.customerId").value(loanResponseDto.customerId()));
     }
 
+    @Test
+    @DisplayName("Retrieve loans with a sparse fieldset writes expanded books whole")
+    @WithMockUser(roles = {"MANAGER"})
+    void findAllLoans_ExpandedWithFields_WritesWholeBook() throws Exception {
+        // Given
+        BookResponseDto book = new BookResponseDto(
+                "bookId", "Book Title", "Book Author", "Book Category", true, 0L);
+        LoanResponseDto expandedLoan = new LoanResponseDto(
+                "12345", "bookId", "customerId", LocalDate.now(), null, 0L, book, null);
+        Mockito.when(loanService.findAll(
+                        Mockito.eq(Set.of("id", "book")), Mockito.eq(Set.of("book")),
+                        Mockito.any(Pageable.class)))
+                .thenReturn(List.of(expandedLoan));
+
+        // When & Then
+        mockMvc.perform(get("/loans")
+                        .param("fields", "id,book")
+                        .param("expand", "book")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value("12345"))
+                .andExpect(jsonPath("$[0].bookId").doesNotExist())
+                .andExpect(jsonPath("$[0].book.title").value("Book Title"))
+                .andExpect(jsonPath("$[0].customer").doesNotExist());
+    }
+
     @Test
     @DisplayName("Retrieve a loan by ID not found")
     @WithMockUser(roles = {"MANAGER"})
     void findLoanById_NonExistingLoan_ReturnsNotFound() throws Exception {
         // Given
-        Mockito.when(loanService.findById("loanId"))
+        Mockito.when(loanService.findById("loanId", Set.of()))
                 .thenThrow(new EntityNotFoundException("Loan not found"));
 
         // When & Then
@@ -153,7 +226,8 @@ public class LoanControllerTest {
     @WithMockUser(roles = {"MANAGER"})
     void updateLoanById_ValidData_ReturnsUpdatedLoanResponseDto() throws Exception {
         // Given
-        Mockito.when(loanService.updateById(Mockito.anyString(), Mockito.any(LoanRequestDto.class)))
+        Mockito.when(loanService.updateById(
+                        Mockito.anyString(), Mockito.any(LoanRequestDto.class), Mockito.isNull()))
                 .thenReturn(loanResponseDto);
 
         // When & Then
@@ -46,7 +46,7 @@ public class UserControllerTest {
     @BeforeEach
     void setUp() {
         userResponseDto = new UserResponseDto(
-                "12345", "testuser@library.com", "Test", "User", User.Role.CUSTOMER);
+                "12345", "testuser@library.com", "Test", "User", User.Role.CUSTOMER, 0L);
 
         userRoleUpdateRequestDto = new UserRoleUpdateRequestDto(User.Role.MANAGER);
 
@@ -1,15 +1,32 @@
 package com.libraryapp.repository;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import com.libraryapp.config.DotenvConfig;
+import com.libraryapp.exception.custom.InvalidQueryParameterException;
 import com.libraryapp.model.Book;
+import com.libraryapp.repository.support.BookFacetCounts;
+import com.libraryapp.repository.support.BookFilter;
+import com.libraryapp.repository.support.CursorPage;
+import com.libraryapp.repository.support.CursorSigner;
+import com.libraryapp.repository.support.KeysetPaginator;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.context.annotation.Import;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
@@ -18,6 +35,7 @@ import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
 @DataMongoTest
+@Import({KeysetPaginator.class, CursorSigner.class, DotenvConfig.class})
 @ActiveProfiles("test")
 @Testcontainers
 public class BookRepositoryTest {
@@ -51,7 +69,8 @@ public class BookRepositoryTest {
 
         // When
         bookRepository.save(book);
-        List<Book> books = bookRepository.findAllByIsDeletedFalse(PageRequest.of(0, 10));
+        List<Book> books = bookRepository.findAllByIsDeletedFalse(
+                BookFilter.NONE, Set.of(), PageRequest.of(0, 10));
 
         // Then
         assertEquals(1, books.size(), "There should be one book");
@@ -78,10 +97,159 @@ public class BookRepositoryTest {
 
         // When
         Pageable pageable = PageRequest.of(0, 10);
-        List<Book> books = bookRepository.findAllByIsDeletedFalse(pageable);
+        List<Book> books =
+                bookRepository.findAllByIsDeletedFalse(BookFilter.NONE, Set.of(), pageable);
 
         // Then
         assertEquals(1, books.size(), "There should be one non-deleted book");
         assertEquals("Spring in Action", books.get(0).getTitle(), "Book title should match");
     }
+
+    @Test
+    void testMarkBorrowedIfAvailable() {
+        // Given
+        Book book = Book.builder()
+                .title("Clean Code")
+                .author("Robert Martin")
+                .category("Programming")
+                .build();
+        bookRepository.save(book);
+
+        // When
+        long firstCheckout = bookRepository.markBorrowedIfAvailable(book.getId());
+        long secondCheckout = bookRepository.markBorrowedIfAvailable(book.getId());
+
+        // Then
+        assertEquals(1, firstCheckout, "The available book should be borrowed");
+        assertEquals(0, secondCheckout, "The borrowed book should not be borrowed again");
+    }
+
+    @Test
+    void testMarkDeleted() {
+        // Given
+        Book book = Book.builder()
+                .title("Domain-Driven Design")
+                .author("Eric Evans")
+                .category("Programming")
+                .isDeleted(false)
+                .build();
+        bookRepository.save(book);
+
+        // When
+        Optional<Book> deleted = bookRepository.markDeleted(book.getId());
+
+        // Then
+        assertFalse(deleted.orElseThrow().getIsDeleted(),
+                "The book should be returned as it was before the delete");
+        assertTrue(bookRepository.findAllByIsDeletedFalse(
+                        BookFilter.NONE, Set.of(), PageRequest.of(0, 10)).isEmpty(),
+                "There should be no non-deleted books");
+        assertTrue(bookRepository.markDeleted("64b64c4f2f3b4a1d9c0e1234").isEmpty(),
+                "A missing book should not be reported as deleted");
+    }
+
+    @Test
+    void testFindAllByIsDeletedFalse_WithFilter() {
+        // Given
+        bookRepository.saveAll(List.of(
+                Book.builder().title("Emma").author("Jane Austen").category("Novel").build(),
+                Book.builder().title("Dune").author("Frank Herbert").category("Science Fiction")
+                        .build(),
+                Book.builder().title("Persuasion").author("Jane Austen").category("Novel")
+                        .isBorrowed(true).build(),
+                Book.builder().title("Mansfield Park").author("Jane Austen").category("Novel")
+                        .build()));
+        BookFilter filter = new BookFilter("Novel", null, true);
+
+        // When
+        List<Book> books = bookRepository.findAllByIsDeletedFalse(
+                filter, Set.of(), PageRequest.of(0, 10, Sort.by("title")));
+
+        // Then
+        assertEquals(List.of("Emma", "Mansfield Park"),
+                books.stream().map(Book::getTitle).toList(),
+                "Only available novels should be listed, sorted by title");
+    }
+
+    @Test
+    void testFindAllByIsDeletedFalse_WithFields() {
+        // Given
+        bookRepository.save(Book.builder().title("Emma").author("Jane Austen").build());
+
+        // When
+        List<Book> books = bookRepository.findAllByIsDeletedFalse(
+                BookFilter.NONE, Set.of("id", "title"), PageRequest.of(0, 10));
+
+        // Then
+        assertEquals(1, books.size(), "There should be one book");
+        assertNotNull(books.get(0).getId(), "Book id should be read");
+        assertEquals("Emma", books.get(0).getTitle(), "Book title should be read");
+        assertNull(books.get(0).getAuthor(), "Book author should not be read");
+    }
+
+    @Test
+    void testFindAllByIsDeletedFalse_UnsupportedFilterOrSort() {
+        // Given
+        BookFilter categoryAndAuthor = new BookFilter("Novel", "Jane Austen", null);
+        BookFilter category = new BookFilter("Novel", null, null);
+        final BookFilter available = new BookFilter(null, null, true);
+
+        // When & Then
+        assertThrows(InvalidQueryParameterException.class,
+                () -> bookRepository.findAllByIsDeletedFalse(
+                        categoryAndAuthor, Set.of(), PageRequest.of(0, 10)));
+        assertThrows(InvalidQueryParameterException.class,
+                () -> bookRepository.findAllByIsDeletedFalse(
+                        category, Set.of(), PageRequest.of(0, 10, Sort.by("author"))));
+        assertThrows(InvalidQueryParameterException.class,
+                () -> bookRepository.findAllByIsDeletedFalseAfter(
+                        category, Set.of(), null, Sort.by("author"), 10));
+        assertThrows(InvalidQueryParameterException.class,
+                () -> bookRepository.findAllByIsDeletedFalse(
+                        available, Set.of(), PageRequest.of(0, 10, Sort.by("title"))));
+        assertThrows(InvalidQueryParameterException.class,
+                () -> bookRepository.findAllByIsDeletedFalse(
+                        BookFilter.NONE, Set.of(), PageRequest.of(0, 10, Sort.by("category"))));
+    }
+
+    @Test
+    void testFindAllByIsDeletedFalseAfter_CategoryWithoutSort_OrdersByTitle() {
+        // Given
+        bookRepository.saveAll(List.of(
+                Book.builder().title("Persuasion").author("Jane Austen").category("Novel")
+                        .build(),
+                Book.builder().title("Emma").author("Jane Austen").category("Novel").build()));
+        BookFilter category = new BookFilter("Novel", null, null);
+
+        // When
+        CursorPage<Book> page = bookRepository.findAllByIsDeletedFalseAfter(
+                category, Set.of(), null, Sort.unsorted(), 10);
+
+        // Then
+        assertEquals(List.of("Emma", "Persuasion"),
+                page.content().stream().map(Book::getTitle).toList(),
+                "Category pages without a sort should follow the title index");
+    }
+
+    @Test
+    void testCountFacets() {
+        // Given
+        bookRepository.saveAll(List.of(
+                Book.builder().title("Dune").author("Frank Herbert").category("Science Fiction")
+                        .isBorrowed(true).build(),
+                Book.builder().title("Dune Messiah").author("Frank Herbert")
+                        .category("Science Fiction").build(),
+                Book.builder().title("Emma").author("Jane Austen").category("Novel").build(),
+                Book.builder().title("Persuasion").author("Jane Austen").category("Novel")
+                        .isDeleted(true).build()));
+
+        // When
+        BookFacetCounts counts = bookRepository.countFacets(1);
+
+        // Then
+        assertEquals(Map.of("Science Fiction", 2L, "Novel", 1L), counts.categories());
+        assertEquals(Map.of("Frank Herbert", 2L), counts.authors());
+        assertEquals(3, counts.books());
+        assertEquals(1, counts.borrowedBooks());
+    }
 }
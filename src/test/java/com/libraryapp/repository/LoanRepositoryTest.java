@@ -3,13 +3,18 @@ package com.libraryapp.repository;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import com.libraryapp.config.DotenvConfig;
 import com.libraryapp.model.Book;
 import com.libraryapp.model.Loan;
+import com.libraryapp.repository.support.CursorSigner;
+import com.libraryapp.repository.support.KeysetPaginator;
 import java.time.LocalDate;
+import java.util.Set;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.context.annotation.Import;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.test.context.ActiveProfiles;
@@ -20,6 +25,7 @@ import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
 @DataMongoTest
+@Import({KeysetPaginator.class, CursorSigner.class, DotenvConfig.class})
 @ActiveProfiles("test")
 @Testcontainers
 public class LoanRepositoryTest {
@@ -52,7 +58,8 @@ public class LoanRepositoryTest {
 
         // When
         Pageable pageable = PageRequest.of(0, 10);
-        var loans = loanRepository.findAllByCustomerIdAndIsDeletedFalse(customerId, pageable);
+        var loans = loanRepository.findAllByCustomerIdAndIsDeletedFalse(
+                customerId, Set.of(), pageable);
 
         // Then
         assertTrue(loans.isEmpty(), "The page of loans should be empty");
@@ -78,10 +85,11 @@ public class LoanRepositoryTest {
 
         // When
         Pageable pageable = PageRequest.of(0, 10);
-        var loans = loanRepository.findAllByCustomerIdAndIsDeletedFalse("customer-1", pageable);
+        var loans = loanRepository.findAllByCustomerIdAndIsDeletedFalse(
+                "customer-1", Set.of(), pageable);
 
         // Then
-        assertEquals(1, loans.getTotalElements(),
+        assertEquals(1, loans.getNumberOfElements(),
                 "The page of loans should contain one loan");
         assertEquals("customer-1", loans.getContent().get(0).getCustomerId(),
                 "The customer ID should match");
@@ -123,12 +131,34 @@ public class LoanRepositoryTest {
 
         // When
         Pageable pageable = PageRequest.of(0, 10);
-        var loans = loanRepository.findAllByIsDeletedFalse(pageable);
+        var loans = loanRepository.findAllByIsDeletedFalse(Set.of(), pageable);
 
         // Then
-        assertEquals(1, loans.getTotalElements(),
+        assertEquals(1, loans.getNumberOfElements(),
                 "The page should contain only non-deleted loans");
+        assertEquals(1, loanRepository.countByIsDeletedFalse(),
+                "Only non-deleted loans should be counted");
         assertEquals("customer-2", loans.getContent().get(0).getCustomerId(),
                 "The customer ID should match");
     }
+
+    @Test
+    void markReturned_OpenLoan_ReturnsLoanOnlyOnce() {
+        // Given
+        Loan loan = new Loan();
+        loan.setBookId("book-1");
+        loan.setCustomerId("customer-3");
+        loan.setBorrowedDate(LocalDate.now());
+        loanRepository.save(loan);
+
+        // When
+        var firstReturn = loanRepository.markReturned(loan.getId(), LocalDate.now());
+        var secondReturn = loanRepository.markReturned(loan.getId(), LocalDate.now());
+
+        // Then
+        assertTrue(firstReturn.isPresent(), "The open loan should be returned");
+        assertEquals(LocalDate.now(), firstReturn.get().getReturnedDate(),
+                "The returned date should be set");
+        assertTrue(secondReturn.isEmpty(), "The loan should not be returned twice");
+    }
 }
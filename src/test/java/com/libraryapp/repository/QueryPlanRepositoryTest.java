@@ -0,0 +1,376 @@
+package com.libraryapp.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.libraryapp.config.DotenvConfig;
+import com.libraryapp.config.IndexInitializer;
+import com.libraryapp.model.Book;
+import com.libraryapp.model.Loan;
+import com.libraryapp.model.User;
+import com.libraryapp.repository.support.BookFilter;
+import com.libraryapp.repository.support.CursorSigner;
+import com.libraryapp.repository.support.ExplainPlanVerifier;
+import com.libraryapp.repository.support.KeysetPaginator;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.IntStream;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+// Runs every repository query against a seeded dataset and checks its plan stays within budget
+@DataMongoTest
+@Import({KeysetPaginator.class, CursorSigner.class, DotenvConfig.class, IndexInitializer.class,
+        QueryPlanRepositoryTest.CommandRecorderConfig.class})
+@ActiveProfiles("test")
+@Testcontainers
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class QueryPlanRepositoryTest {
+
+    private static final int BOOKS = 1000;
+    private static final int USERS = 500;
+    private static final int CUSTOMERS = 100;
+    private static final int LOANS_PER_CUSTOMER = 20;
+    private static final int PAGE_SIZE = 10;
+    // Slices and keyset pages read one document more than they return, and a scan may
+    // look at one key past the end of its range
+    private static final int PAGE_BUDGET = PAGE_SIZE + 2;
+    // A cursor condition may be answered by two index ranges that are merged
+    private static final int CURSOR_PAGE_BUDGET = 3 * PAGE_BUDGET;
+    private static final String CUSTOMER_ID = "customer-7";
+
+    @Container
+    private static final MongoDBContainer mongoDBContainer = new MongoDBContainer("mongo:4.4.3")
+            .withExposedPorts(27017);
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private IndexInitializer indexInitializer;
+
+    @Autowired
+    private CommandRecorder commandRecorder;
+
+    private String bookId;
+    private String loanId;
+    private String userId;
+    private long activeLoans;
+
+    @DynamicPropertySource
+    static void setProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.data.mongodb.uri", mongoDBContainer::getReplicaSetUrl);
+    }
+
+    @BeforeAll
+    void seed() {
+        List.of(Book.class, Loan.class, User.class).forEach(mongoTemplate::dropCollection);
+        indexInitializer.ensureIndexes();
+
+        List<Book> books = IntStream.range(0, BOOKS)
+                .mapToObj(i -> Book.builder()
+                        .title("Title " + i)
+                        .author("Author " + i % 50)
+                        .category("Category " + i % 10)
+                        .isDeleted(i % 10 == 0)
+                        .build())
+                .toList();
+        bookId = new ArrayList<>(mongoTemplate.insertAll(books)).get(1).getId();
+
+        List<Loan> loans = IntStream.range(0, CUSTOMERS * LOANS_PER_CUSTOMER)
+                .mapToObj(i -> getLoan(i, "customer-" + i % CUSTOMERS))
+                .toList();
+        loanId = new ArrayList<>(mongoTemplate.insertAll(loans)).get(1).getId();
+        activeLoans = loans.stream().filter(loan -> !loan.getIsDeleted()).count();
+
+        List<User> users = IntStream.range(0, USERS)
+                .mapToObj(QueryPlanRepositoryTest::getUser)
+                .toList();
+        userId = new ArrayList<>(mongoTemplate.insertAll(users)).get(1).getId();
+    }
+
+    @Test
+    @DisplayName("Verify that finding a user by email reads a single index entry")
+    void findByEmail_UsesUniqueIndex() {
+        QueryPlan plan = explain(() -> userRepository.findByEmail("user42@library.com"));
+
+        plan.assertWithin(1, 1);
+    }
+
+    @Test
+    @DisplayName("Verify that book pages only read the documents they return")
+    void findAllByIsDeletedFalse_Books_UsesActiveIndex() {
+        final QueryPlan unsorted = explain(() -> bookRepository.findAllByIsDeletedFalse(
+                BookFilter.NONE, Set.of(), PageRequest.of(0, PAGE_SIZE)));
+        final QueryPlan sortedByTitle = explain(() -> bookRepository.findAllByIsDeletedFalse(
+                BookFilter.NONE, Set.of(), PageRequest.of(0, PAGE_SIZE, Sort.by("title"))));
+
+        unsorted.assertWithin(PAGE_BUDGET, PAGE_BUDGET);
+        sortedByTitle.assertWithin(PAGE_BUDGET, PAGE_BUDGET);
+    }
+
+    @Test
+    @DisplayName("Verify that keyset book pages only read the documents they return")
+    void findAllByIsDeletedFalseAfter_Books_UsesActiveIndex() {
+        final QueryPlan firstPage = explain(() -> bookRepository.findAllByIsDeletedFalseAfter(
+                BookFilter.NONE, Set.of(), null, Sort.by("author"), PAGE_SIZE));
+        String cursor = bookRepository.findAllByIsDeletedFalseAfter(
+                BookFilter.NONE, Set.of(), null, Sort.by("author"), PAGE_SIZE).nextCursor();
+        final QueryPlan nextPage = explain(() -> bookRepository.findAllByIsDeletedFalseAfter(
+                BookFilter.NONE, Set.of(), cursor, Sort.unsorted(), PAGE_SIZE));
+        final QueryPlan sortedById = explain(() -> bookRepository.findAllByIsDeletedFalseAfter(
+                BookFilter.NONE, Set.of(), null, Sort.unsorted(), PAGE_SIZE));
+
+        firstPage.assertWithin(PAGE_BUDGET, PAGE_BUDGET);
+        nextPage.assertWithin(CURSOR_PAGE_BUDGET, CURSOR_PAGE_BUDGET);
+        sortedById.assertWithin(PAGE_BUDGET, PAGE_BUDGET);
+    }
+
+    @Test
+    @DisplayName("Verify that filtered book pages only read the documents they return")
+    void findAllByIsDeletedFalse_FilteredBooks_UsesFilterIndexes() {
+        BookFilter category = new BookFilter("Category 3", null, null);
+        BookFilter author = new BookFilter(null, "Author 7", null);
+        BookFilter categoryAvailable = new BookFilter("Category 3", null, true);
+        final QueryPlan byCategory = explain(() -> bookRepository.findAllByIsDeletedFalse(
+                category, Set.of(), PageRequest.of(0, PAGE_SIZE, Sort.by("title"))));
+        final QueryPlan byAuthor = explain(() -> bookRepository.findAllByIsDeletedFalse(
+                author, Set.of(), PageRequest.of(0, PAGE_SIZE, Sort.by("title"))));
+        final QueryPlan byCategoryAvailable = explain(() -> bookRepository
+                .findAllByIsDeletedFalseAfter(categoryAvailable, Set.of(), null,
+                        Sort.by("title"), PAGE_SIZE));
+        final QueryPlan available = explain(() -> bookRepository.findAllByIsDeletedFalseAfter(
+                new BookFilter(null, null, true), Set.of(), null, Sort.unsorted(), PAGE_SIZE));
+        final QueryPlan byCategoryUnsorted = explain(() -> bookRepository
+                .findAllByIsDeletedFalseAfter(category, Set.of(), null, Sort.unsorted(),
+                        PAGE_SIZE));
+
+        byCategory.assertWithin(PAGE_BUDGET, PAGE_BUDGET);
+        byAuthor.assertWithin(PAGE_BUDGET, PAGE_BUDGET);
+        byCategoryAvailable.assertWithin(PAGE_BUDGET, PAGE_BUDGET);
+        available.assertWithin(PAGE_BUDGET, PAGE_BUDGET);
+        byCategoryUnsorted.assertWithin(PAGE_BUDGET, PAGE_BUDGET);
+    }
+
+    @Test
+    @DisplayName("Verify that facet counts are answered from the index alone")
+    void countFacets_UsesCoveringIndex() {
+        explain(() -> bookRepository.countFacets(PAGE_SIZE)).assertWithin(BOOKS + 1, 0);
+    }
+
+    @Test
+    @DisplayName("Verify that book state changes read a single document")
+    void bookUpdates_UseIdIndex() {
+        explain(() -> bookRepository.markBorrowedIfAvailable(bookId)).assertWithin(1, 1);
+        explain(() -> bookRepository.markAvailable(bookId)).assertWithin(1, 1);
+        explain(() -> bookRepository.markDeleted(bookId)).assertWithin(1, 1);
+    }
+
+    @Test
+    @DisplayName("Verify that a multi-get reads only the requested documents")
+    void findAllById_UsesIdIndex() {
+        List<String> bookIds = List.of(bookId, new ObjectId().toHexString());
+        List<String> loanIds = List.of(loanId, new ObjectId().toHexString());
+
+        explain(() -> bookRepository.findAllById(bookIds)).assertWithin(3, 2);
+        explain(() -> loanRepository.findAllById(loanIds)).assertWithin(3, 2);
+        explain(() -> userRepository.findAllWithoutPasswordByIdIn(List.of(userId)))
+                .assertWithin(2, 1);
+    }
+
+    @Test
+    @DisplayName("Verify that a customer's loans only read that customer's index entries")
+    void findAllByCustomerIdAndIsDeletedFalse_UsesCustomerIndex() {
+        final QueryPlan unsorted = explain(() -> loanRepository
+                .findAllByCustomerIdAndIsDeletedFalse(
+                        CUSTOMER_ID, Set.of(), PageRequest.of(0, PAGE_SIZE)));
+        final QueryPlan count = explain(() -> loanRepository.countByCustomerIdAndIsDeletedFalse(
+                CUSTOMER_ID));
+        final QueryPlan keysetByDate = explain(() -> loanRepository
+                .findAllByCustomerIdAndIsDeletedFalseAfter(
+                        CUSTOMER_ID, Set.of(), null, Sort.by("borrowedDate"), PAGE_SIZE));
+        final QueryPlan keysetById = explain(() -> loanRepository
+                .findAllByCustomerIdAndIsDeletedFalseAfter(
+                        CUSTOMER_ID, Set.of(), null, Sort.unsorted(), PAGE_SIZE));
+
+        unsorted.assertWithin(PAGE_BUDGET, PAGE_BUDGET);
+        count.assertWithin(LOANS_PER_CUSTOMER + 1, LOANS_PER_CUSTOMER);
+        keysetByDate.assertWithin(PAGE_BUDGET, PAGE_BUDGET);
+        // Sorting by id alone needs an in-memory sort of the customer's loans
+        keysetById.assertWithin(LOANS_PER_CUSTOMER + 1, LOANS_PER_CUSTOMER);
+    }
+
+    @Test
+    @DisplayName("Verify that loan pages only read the documents they return")
+    void findAllByIsDeletedFalse_Loans_UsesActiveIndex() {
+        final QueryPlan unsorted = explain(() -> loanRepository.findAllByIsDeletedFalse(
+                Set.of(), PageRequest.of(0, PAGE_SIZE)));
+        final QueryPlan firstPage = explain(() -> loanRepository.findAllByIsDeletedFalseAfter(
+                Set.of(), null, Sort.by(Sort.Direction.DESC, "borrowedDate"), PAGE_SIZE));
+        String cursor = loanRepository.findAllByIsDeletedFalseAfter(
+                        Set.of(), null, Sort.by(Sort.Direction.DESC, "borrowedDate"), PAGE_SIZE)
+                .nextCursor();
+        final QueryPlan nextPage = explain(() -> loanRepository.findAllByIsDeletedFalseAfter(
+                Set.of(), cursor, Sort.unsorted(), PAGE_SIZE));
+
+        unsorted.assertWithin(PAGE_BUDGET, PAGE_BUDGET);
+        firstPage.assertWithin(PAGE_BUDGET, PAGE_BUDGET);
+        nextPage.assertWithin(CURSOR_PAGE_BUDGET, CURSOR_PAGE_BUDGET);
+    }
+
+    @Test
+    @DisplayName("Verify that counting all loans never reads deleted loans")
+    void countByIsDeletedFalse_UsesActiveIndex() {
+        final QueryPlan count = explain(() -> loanRepository.countByIsDeletedFalse());
+
+        count.assertWithin(activeLoans + 1, activeLoans);
+    }
+
+    @Test
+    @DisplayName("Verify that loan and user state changes read a single document")
+    void loanAndUserUpdates_UseIdIndex() {
+        explain(() -> loanRepository.markReturned(loanId, LocalDate.now())).assertWithin(1, 1);
+        explain(() -> loanRepository.markDeleted(loanId)).assertWithin(1, 1);
+        explain(() -> userRepository.updateRole(userId, User.Role.MANAGER)).assertWithin(1, 1);
+        explain(() -> userRepository.markDeleted(userId)).assertWithin(1, 1);
+    }
+
+    // Runs the query, then explains the single command it sent
+    private QueryPlan explain(Runnable query) {
+        commandRecorder.clear();
+        query.run();
+        List<BsonDocument> commands = commandRecorder.getCommands();
+        assertThat(commands).as("Commands sent by the query").hasSize(1);
+
+        Document explanation = mongoTemplate.getDb().runCommand(
+                new Document("explain", commands.get(0)).append("verbosity", "executionStats"));
+        return new QueryPlan(commands.get(0), explanation);
+    }
+
+    private static Loan getLoan(int index, String customerId) {
+        Loan loan = new Loan();
+        loan.setBookId("book-" + index % BOOKS);
+        loan.setCustomerId(customerId);
+        loan.setBorrowedDate(LocalDate.of(2024, 1, 1).plusDays(index % 365));
+        loan.setIsDeleted(index % 10 == 0);
+        return loan;
+    }
+
+    private static User getUser(int index) {
+        User user = new User();
+        user.setEmail("user" + index + "@library.com");
+        user.setPassword("password");
+        user.setFirstName("First");
+        user.setLastName("Last");
+        return user;
+    }
+
+    private record QueryPlan(BsonDocument command, Document explanation) {
+
+        void assertWithin(long maximumKeysExamined, long maximumDocsExamined) {
+            List<String> stages = ExplainPlanVerifier.getPlanStages(explanation);
+            Document executionStats = findExecutionStats(explanation);
+
+            assertThat(ExplainPlanVerifier.isIndexed(stages))
+                    .as("Plan of %s uses an index, stages: %s", command, stages)
+                    .isTrue();
+            assertThat(executionStats.get("totalKeysExamined", Number.class).longValue())
+                    .as("Keys examined by %s", command)
+                    .isLessThanOrEqualTo(maximumKeysExamined);
+            assertThat(executionStats.get("totalDocsExamined", Number.class).longValue())
+                    .as("Documents examined by %s", command)
+                    .isLessThanOrEqualTo(maximumDocsExamined);
+        }
+
+        // Aggregations (counts) report their statistics inside the first pipeline stage
+        private static Document findExecutionStats(Object node) {
+            if (node instanceof Document document) {
+                if (document.get("executionStats") instanceof Document executionStats) {
+                    return executionStats;
+                }
+                return findExecutionStats(new ArrayList<>(document.values()));
+            }
+            if (node instanceof List<?> list) {
+                return list.stream()
+                        .map(QueryPlan::findExecutionStats)
+                        .filter(Objects::nonNull)
+                        .findFirst()
+                        .orElse(null);
+            }
+
+            return null;
+        }
+    }
+
+    static class CommandRecorder implements CommandListener {
+
+        private static final Set<String> QUERY_COMMANDS = Set.of(
+                "find", "count", "aggregate", "findAndModify", "update", "delete");
+
+        private final List<BsonDocument> commands = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void commandStarted(CommandStartedEvent event) {
+            if (QUERY_COMMANDS.contains(event.getCommandName())) {
+                commands.add(ExplainPlanVerifier.toExplainableCommand(event.getCommand()));
+            }
+        }
+
+        List<BsonDocument> getCommands() {
+            return List.copyOf(commands);
+        }
+
+        void clear() {
+            commands.clear();
+        }
+    }
+
+    @TestConfiguration
+    static class CommandRecorderConfig {
+
+        @Bean
+        CommandRecorder commandRecorder() {
+            return new CommandRecorder();
+        }
+
+        @Bean
+        MongoClientSettingsBuilderCustomizer commandRecorderCustomizer(
+                CommandRecorder commandRecorder) {
+            return settings -> settings.addCommandListener(commandRecorder);
+        }
+    }
+}
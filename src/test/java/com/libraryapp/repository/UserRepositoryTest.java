@@ -2,14 +2,20 @@ package com.libraryapp.repository;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import com.libraryapp.config.DotenvConfig;
 import com.libraryapp.model.User;
+import com.libraryapp.repository.support.CursorSigner;
+import com.libraryapp.repository.support.KeysetPaginator;
+import java.util.List;
 import java.util.Optional;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.context.annotation.Import;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
@@ -18,6 +24,7 @@ import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
 @DataMongoTest
+@Import({KeysetPaginator.class, CursorSigner.class, DotenvConfig.class})
 @ActiveProfiles("test")
 @Testcontainers
 public class UserRepositoryTest {
@@ -59,6 +66,46 @@ public class UserRepositoryTest {
         assertEquals(actual.get(), expectedUser, "User should be the same");
     }
 
+    @Test
+    void findWithoutPasswordById_ExistingUser_LeavesOutPassword() {
+        // Given
+        User user = new User();
+        user.setEmail("test@example.com");
+        user.setPassword("password123");
+        user.setFirstName("John");
+        userRepository.save(user);
+
+        // When
+        Optional<User> actual = userRepository.findWithoutPasswordById(user.getId());
+
+        // Then
+        assertTrue(actual.isPresent(), "User should be present");
+        assertEquals("John", actual.get().getFirstName(), "First name should be read");
+        assertNull(actual.get().getPassword(), "Password hash should not be read");
+    }
+
+    @Test
+    void findAllWithoutPasswordByIdIn_ExistingUsers_LeavesOutPasswords() {
+        // Given
+        User user = new User();
+        user.setEmail("test@example.com");
+        user.setPassword("password123");
+        userRepository.save(user);
+        User otherUser = new User();
+        otherUser.setEmail("other@example.com");
+        otherUser.setPassword("password456");
+        userRepository.save(otherUser);
+
+        // When
+        List<User> actual = userRepository.findAllWithoutPasswordByIdIn(
+                List.of(user.getId(), otherUser.getId()));
+
+        // Then
+        assertEquals(2, actual.size(), "Both users should be found");
+        assertTrue(actual.stream().allMatch(u -> u.getPassword() == null),
+                "Password hashes should not be read");
+    }
+
     @Test
     void findByEmail_InvalidUserEmail_ReturnsEmptyOptional() {
         // Given
@@ -70,4 +117,30 @@ public class UserRepositoryTest {
         // Then
         assertFalse(actual.isPresent(), "User should not be present");
     }
+
+    @Test
+    void updateRole_ExistingUser_UpdatesRoleAndSecurityVersion() {
+        // Given
+        User user = new User();
+        user.setEmail("role@example.com");
+        user.setRole(User.Role.CUSTOMER);
+        userRepository.save(user);
+
+        // When
+        Optional<User> actual = userRepository.updateRole(user.getId(), User.Role.MANAGER);
+
+        // Then
+        assertTrue(actual.isPresent(), "User should be present");
+        assertEquals(User.Role.MANAGER, actual.get().getRole(), "Role should be updated");
+        assertEquals(1L, actual.get().getSecurityVersion(), "Security version should be bumped");
+    }
+
+    @Test
+    void markDeleted_MissingUser_ReturnsEmptyOptional() {
+        // When
+        Optional<User> actual = userRepository.markDeleted("64b64c4f2f3b4a1d9c0e1234");
+
+        // Then
+        assertFalse(actual.isPresent(), "User should not be present");
+    }
 }
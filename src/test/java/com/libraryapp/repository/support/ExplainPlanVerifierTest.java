@@ -0,0 +1,93 @@
+package com.libraryapp.repository.support;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class ExplainPlanVerifierTest {
+
+    @Test
+    @DisplayName("Verify that an index scan in the winning plan counts as indexed")
+    void isIndexed_IndexScan_ReturnsTrue() {
+        // Given
+        Document explanation = Document.parse("""
+                { "queryPlanner": {
+                    "winningPlan": { "stage": "FETCH",
+                        "inputStage": { "stage": "IXSCAN", "indexName": "email_unique" } },
+                    "rejectedPlans": [ { "stage": "COLLSCAN" } ] } }
+                """);
+
+        // When
+        List<String> stages = ExplainPlanVerifier.getPlanStages(explanation);
+
+        // Then
+        assertThat(stages).containsExactly("FETCH", "IXSCAN");
+        assertThat(ExplainPlanVerifier.isIndexed(stages)).isTrue();
+    }
+
+    @Test
+    @DisplayName("Verify that a collection scan counts as not indexed")
+    void isIndexed_CollectionScan_ReturnsFalse() {
+        // Given
+        Document explanation = Document.parse("""
+                { "queryPlanner": {
+                    "winningPlan": { "stage": "SORT",
+                        "inputStage": { "stage": "COLLSCAN" } } } }
+                """);
+
+        // When
+        List<String> stages = ExplainPlanVerifier.getPlanStages(explanation);
+
+        // Then
+        assertThat(ExplainPlanVerifier.isIndexed(stages)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Verify that queries only differing in their values share a shape")
+    void toShape_DifferentValues_ReturnsSameShape() {
+        // Given
+        BsonDocument first = BsonDocument.parse(
+                "{ 'customerId': '1', 'isDeleted': false, '$or': [ { 'borrowedDate': 1 } ] }");
+        BsonDocument second = BsonDocument.parse(
+                "{ 'customerId': '2', 'isDeleted': true, '$or': [ { 'borrowedDate': 5 } ] }");
+
+        // When
+        String shape = ExplainPlanVerifier.toShape(first);
+
+        // Then
+        assertThat(shape).isEqualTo(ExplainPlanVerifier.toShape(second))
+                .isEqualTo("{customerId: ?, isDeleted: ?, $or: [{borrowedDate: ?}]}");
+    }
+
+    @Test
+    @DisplayName("Verify that the filter of an update is read from its first statement")
+    void getFilter_UpdateCommand_ReturnsStatementQuery() {
+        // Given
+        BsonDocument command = BsonDocument.parse(
+                "{ 'update': 'books', 'updates': [ { 'q': { '_id': 'id' }, 'u': {} } ] }");
+
+        // When
+        BsonDocument filter = ExplainPlanVerifier.getFilter(command, "updates");
+
+        // Then
+        assertThat(filter).isEqualTo(BsonDocument.parse("{ '_id': 'id' }"));
+    }
+
+    @Test
+    @DisplayName("Verify that the filter of a count is read from the leading $match")
+    void getFilter_AggregateCommand_ReturnsMatchStage() {
+        // Given
+        BsonDocument command = BsonDocument.parse("{ 'aggregate': 'loans', 'pipeline': ["
+                + "{ '$match': { 'isDeleted': false } }, { '$group': { '_id': 1 } } ] }");
+
+        // When
+        BsonDocument filter = ExplainPlanVerifier.getFilter(command, "pipeline");
+
+        // Then
+        assertThat(filter).isEqualTo(BsonDocument.parse("{ 'isDeleted': false }"));
+    }
+}
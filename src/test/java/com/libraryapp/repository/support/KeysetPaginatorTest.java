@@ -0,0 +1,239 @@
+package com.libraryapp.repository.support;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.libraryapp.exception.custom.InvalidQueryParameterException;
+import com.libraryapp.model.Book;
+import io.github.cdimascio.dotenv.Dotenv;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.Set;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+@ExtendWith(MockitoExtension.class)
+public class KeysetPaginatorTest {
+
+    private static final Set<String> SORTABLE_PROPERTIES = Set.of("title");
+    private static final Criteria FILTER = Criteria.where("isDeleted").is(false);
+    private static final String SECRET = "superLong12345AndStrong12345SecretString";
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    private CursorSigner cursorSigner;
+    private KeysetPaginator keysetPaginator;
+
+    @BeforeEach
+    void setUp() {
+        Dotenv dotenv = mock(Dotenv.class);
+        when(dotenv.get("JWT_SECRET_STRING")).thenReturn(SECRET);
+        cursorSigner = new CursorSigner(dotenv);
+        keysetPaginator = new KeysetPaginator(mongoTemplate, cursorSigner);
+    }
+
+    @Test
+    @DisplayName("Verify that a full page returns a cursor and fetches one extra document")
+    void findPage_MoreDocumentsThanSize_ReturnsNextCursor() {
+        // Given
+        List<Book> books = List.of(getBook(1, "A"), getBook(2, "B"), getBook(3, "C"));
+        stubConverter();
+        when(mongoTemplate.find(any(Query.class), eq(Book.class))).thenReturn(books);
+
+        // When
+        CursorPage<Book> page = keysetPaginator.findPage(
+                FILTER, Set.of(), "", Sort.by("title"), 2, SORTABLE_PROPERTIES, Book.class);
+
+        // Then
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(query.capture(), eq(Book.class));
+        assertThat(page.content()).containsExactly(books.get(0), books.get(1));
+        assertThat(page.nextCursor()).isNotNull();
+        assertThat(query.getValue().getLimit()).isEqualTo(3);
+        assertThat(query.getValue().getSortObject())
+                .isEqualTo(new Document("title", 1).append("_id", 1));
+    }
+
+    @Test
+    @DisplayName("Verify that the cursor continues after the last sort key and id")
+    void findPage_WithCursor_QueriesAfterLastKey() {
+        // Given
+        stubConverter();
+        when(mongoTemplate.find(any(Query.class), eq(Book.class)))
+                .thenReturn(List.of(getBook(1, "A"), getBook(2, "B"), getBook(3, "C")))
+                .thenReturn(List.of());
+        String cursor = keysetPaginator.findPage(
+                        FILTER, Set.of(), "", Sort.by("title"), 2, SORTABLE_PROPERTIES, Book.class)
+                .nextCursor();
+
+        // When
+        CursorPage<Book> page = keysetPaginator.findPage(
+                FILTER, Set.of(), cursor, Sort.unsorted(), 2, SORTABLE_PROPERTIES, Book.class);
+
+        // Then
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, times(2))
+                .find(query.capture(), eq(Book.class));
+        Document keysetCriteria = query.getValue().getQueryObject();
+        assertThat(page.nextCursor()).isNull();
+        assertThat(keysetCriteria.toJson())
+                .contains("\"title\": {\"$gt\": \"B\"}")
+                .contains("\"$gt\": {\"$oid\": \"" + getId(2) + "\"}");
+        assertThat(query.getValue().getSortObject())
+                .isEqualTo(new Document("title", 1).append("_id", 1));
+    }
+
+    @Test
+    @DisplayName("Verify that a malformed cursor is rejected")
+    void findPage_InvalidCursor_ThrowsInvalidQueryParameterException() {
+        // When & Then
+        assertThrows(InvalidQueryParameterException.class, () -> keysetPaginator.findPage(
+                FILTER, Set.of(), "not-a-cursor", Sort.unsorted(), 2, SORTABLE_PROPERTIES,
+                Book.class));
+    }
+
+    @Test
+    @DisplayName("Verify that a cursor whose payload was changed is rejected")
+    void findPage_TamperedCursor_ThrowsInvalidQueryParameterException() {
+        // Given
+        stubConverter();
+        when(mongoTemplate.find(any(Query.class), eq(Book.class)))
+                .thenReturn(List.of(getBook(1, "A"), getBook(2, "B"), getBook(3, "C")));
+        final String cursor = keysetPaginator.findPage(
+                        FILTER, Set.of(), "", Sort.by("title"), 2, SORTABLE_PROPERTIES, Book.class)
+                .nextCursor();
+        String tampered = encode(getPosition(new Document("$regex", ".*")))
+                + cursor.substring(cursor.indexOf('.'));
+
+        // When & Then
+        assertThrows(InvalidQueryParameterException.class, () -> keysetPaginator.findPage(
+                FILTER, Set.of(), tampered, Sort.unsorted(), 2, SORTABLE_PROPERTIES,
+                Book.class));
+    }
+
+    @Test
+    @DisplayName("Verify that a signed cursor with an operator as sort key is rejected")
+    void findPage_DocumentSortKey_ThrowsInvalidQueryParameterException() {
+        // Given
+        stubConverter();
+        String cursor = sign(getPosition(new Document("$regex", ".*")));
+
+        // When & Then
+        assertThrows(InvalidQueryParameterException.class, () -> keysetPaginator.findPage(
+                FILTER, Set.of(), cursor, Sort.unsorted(), 2, SORTABLE_PROPERTIES,
+                Book.class));
+    }
+
+    @Test
+    @DisplayName("Verify that a signed cursor with a null sort key is rejected")
+    void findPage_NullSortKey_ThrowsInvalidQueryParameterException() {
+        // Given
+        stubConverter();
+        String cursor = sign(getPosition(null));
+
+        // When & Then
+        assertThrows(InvalidQueryParameterException.class, () -> keysetPaginator.findPage(
+                FILTER, Set.of(), cursor, Sort.unsorted(), 2, SORTABLE_PROPERTIES,
+                Book.class));
+    }
+
+    @Test
+    @DisplayName("Verify that a signed cursor whose last id is not an ObjectId is rejected")
+    void findPage_NonObjectIdLastId_ThrowsInvalidQueryParameterException() {
+        // Given
+        String cursor = sign(getPosition("B").append("i", new Document("$ne", null)));
+
+        // When & Then
+        assertThrows(InvalidQueryParameterException.class, () -> keysetPaginator.findPage(
+                FILTER, Set.of(), cursor, Sort.unsorted(), 2, SORTABLE_PROPERTIES,
+                Book.class));
+    }
+
+    @Test
+    @DisplayName("Verify that sorting by an unsupported property is rejected")
+    void findPage_UnsupportedSort_ThrowsInvalidQueryParameterException() {
+        // When & Then
+        assertThrows(InvalidQueryParameterException.class, () -> keysetPaginator.findPage(
+                FILTER, Set.of(), "", Sort.by("isBorrowed"), 2, SORTABLE_PROPERTIES,
+                Book.class));
+    }
+
+    @Test
+    @DisplayName("Verify that a projected page still reads the keys of the cursor")
+    void findPage_WithFields_IncludesCursorKeys() {
+        // Given
+        stubConverter();
+        when(mongoTemplate.find(any(Query.class), eq(Book.class))).thenReturn(List.of());
+
+        // When
+        keysetPaginator.findPage(
+                FILTER, Set.of("id"), "", Sort.by("title"), 2, SORTABLE_PROPERTIES, Book.class);
+
+        // Then
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(query.capture(), eq(Book.class));
+        assertThat(query.getValue().getFieldsObject())
+                .isEqualTo(new Document("id", 1).append("title", 1).append("_id", 1));
+    }
+
+    private void stubConverter() {
+        MappingMongoConverter converter =
+                new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, new MongoMappingContext());
+        converter.afterPropertiesSet();
+        when(mongoTemplate.getConverter()).thenReturn(converter);
+    }
+
+    private Document getPosition(Object lastTitle) {
+        return new Document("f", "title")
+                .append("d", "ASC")
+                .append("v", lastTitle)
+                .append("i", new ObjectId(getId(2)));
+    }
+
+    private String sign(Document position) {
+        byte[] payload = position.toJson().getBytes(StandardCharsets.UTF_8);
+
+        return encode(position) + "." + Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(cursorSigner.sign(payload));
+    }
+
+    private String encode(Document position) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(position.toJson().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Book getBook(int number, String title) {
+        return Book.builder()
+                .id(getId(number))
+                .title(title)
+                .author("Author")
+                .category("Category")
+                .build();
+    }
+
+    private String getId(int number) {
+        return new ObjectId(String.format("%024d", number)).toHexString();
+    }
+}
@@ -0,0 +1,115 @@
+package com.libraryapp.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.when;
+
+import com.libraryapp.dto.book.BookResponseDto;
+import com.libraryapp.event.BookChangedEvent;
+import com.libraryapp.exception.custom.InvalidQueryParameterException;
+import com.libraryapp.mapper.BookMapper;
+import com.libraryapp.model.Book;
+import com.libraryapp.repository.BookRepository;
+import com.libraryapp.repository.support.CursorPage;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+@ExtendWith(MockitoExtension.class)
+public class BookSearchIndexTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private BookRepository bookRepository;
+
+    @Mock
+    private BookMapper bookMapper;
+
+    @InjectMocks
+    private BookSearchIndex bookSearchIndex;
+
+    @Test
+    @DisplayName("Verify that search results are paged by cursor")
+    void search_MoreHitsThanSize_ReturnsNextCursor() throws InterruptedException {
+        // Given
+        index("1", "Dune");
+        index("2", "Dune Messiah");
+
+        // When
+        CursorPage<BookResponseDto> firstPage = bookSearchIndex.search("dune", false, null, 1);
+        CursorPage<BookResponseDto> secondPage =
+                bookSearchIndex.search("dune", false, firstPage.nextCursor(), 1);
+
+        // Then
+        assertThat(firstPage.nextCursor()).isNotNull();
+        assertThat(secondPage.nextCursor()).isNull();
+        assertThat(secondPage.content()).hasSize(1)
+                .doesNotContainAnyElementsOf(firstPage.content());
+    }
+
+    @Test
+    @DisplayName("Verify that a deleted book disappears from search results")
+    void onBookChanged_DeletedBook_RemovesFromIndex() throws InterruptedException {
+        // Given
+        index("1", "Dune");
+        Book deletedBook = Book.builder().id("1").title("Dune").isDeleted(true).build();
+        when(bookRepository.findById("1")).thenReturn(Optional.of(deletedBook));
+
+        // When
+        bookSearchIndex.onBookChanged(new BookChangedEvent("1"));
+        bookSearchIndex.awaitChanges();
+
+        // Then
+        assertThat(bookSearchIndex.search("dune", false, null, 10).content()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Verify that a change is read off the thread that published it")
+    void onBookChanged_ChangedBook_ReadsInBackground() throws InterruptedException {
+        // Given
+        Set<Thread> readingThreads = ConcurrentHashMap.newKeySet();
+        when(bookRepository.findById("1")).thenAnswer(invocation -> {
+            readingThreads.add(Thread.currentThread());
+            return Optional.empty();
+        });
+
+        // When
+        bookSearchIndex.onBookChanged(new BookChangedEvent("1"));
+        bookSearchIndex.awaitChanges();
+
+        // Then
+        assertThat(readingThreads).hasSize(1).doesNotContain(Thread.currentThread());
+    }
+
+    @Test
+    @DisplayName("Verify that a query without words is rejected")
+    void search_BlankQuery_ThrowsException() {
+        assertThrows(InvalidQueryParameterException.class,
+                () -> bookSearchIndex.search(" - ", false, null, 10));
+    }
+
+    @Test
+    @DisplayName("Verify that a malformed cursor is rejected")
+    void search_InvalidCursor_ThrowsException() {
+        assertThrows(InvalidQueryParameterException.class,
+                () -> bookSearchIndex.search("dune", false, "not a cursor", 10));
+    }
+
+    private void index(String id, String title) throws InterruptedException {
+        Book book = Book.builder().id(id).title(title).build();
+        when(bookRepository.findById(id)).thenReturn(Optional.of(book));
+        when(bookMapper.toDto(book))
+                .thenReturn(new BookResponseDto(id, title, null, null, false, 0L));
+        bookSearchIndex.onBookChanged(new BookChangedEvent(id));
+        bookSearchIndex.awaitChanges();
+    }
+}
@@ -0,0 +1,78 @@
+package com.libraryapp.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.libraryapp.event.BookChangedEvent;
+import com.libraryapp.exception.custom.InvalidQueryParameterException;
+import com.libraryapp.model.Book;
+import com.libraryapp.repository.BookRepository;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+public class BookSuggesterTest {
+
+    private BookRepository bookRepository;
+    private BookSuggester bookSuggester;
+
+    @BeforeEach
+    void setUp() {
+        bookRepository = mock(BookRepository.class);
+        bookSuggester = new BookSuggester(mock(MongoTemplate.class), bookRepository, 10);
+    }
+
+    @Test
+    @DisplayName("Verify that a new book is suggested by its title and author")
+    void onBookChanged_NewBook_SuggestsTitleAndAuthor() throws InterruptedException {
+        // When
+        change(Book.builder().id("1").title("Émile").author("Jean-Jacques Rousseau").build());
+
+        // Then
+        assertThat(bookSuggester.suggest("emi")).containsExactly("Émile");
+        assertThat(bookSuggester.suggest("Jean Jac")).containsExactly("Jean-Jacques Rousseau");
+    }
+
+    @Test
+    @DisplayName("Verify that borrowing a book moves it up the suggestions")
+    void onBookChanged_BorrowedBook_RanksFirst() throws InterruptedException {
+        // Given
+        change(Book.builder().id("1").title("Dune").build());
+        change(Book.builder().id("2").title("Dungeon").build());
+
+        // When
+        change(Book.builder().id("2").title("Dungeon").isBorrowed(true).build());
+
+        // Then
+        assertThat(bookSuggester.suggest("dun")).containsExactly("Dungeon", "Dune");
+    }
+
+    @Test
+    @DisplayName("Verify that a deleted book is no longer suggested")
+    void onBookChanged_DeletedBook_RemovesSuggestion() throws InterruptedException {
+        // Given
+        change(Book.builder().id("1").title("Dune").build());
+
+        // When
+        change(Book.builder().id("1").title("Dune").isDeleted(true).build());
+
+        // Then
+        assertThat(bookSuggester.suggest("dun")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Verify that a prefix without letters or digits is rejected")
+    void suggest_BlankPrefix_ThrowsException() {
+        assertThrows(InvalidQueryParameterException.class, () -> bookSuggester.suggest("  "));
+    }
+
+    private void change(Book book) throws InterruptedException {
+        when(bookRepository.findById(book.getId())).thenReturn(Optional.of(book));
+        bookSuggester.onBookChanged(new BookChangedEvent(book.getId()));
+        bookSuggester.awaitChanges();
+    }
+}
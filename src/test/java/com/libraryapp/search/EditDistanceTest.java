@@ -0,0 +1,28 @@
+package com.libraryapp.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class EditDistanceTest {
+
+    @Test
+    @DisplayName("Verify that swapped neighbouring letters count as one edit")
+    void distance_Transposition_ReturnsOne() {
+        assertThat(EditDistance.distance("tolkein", "tolkien", 2)).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Verify that substitutions, insertions and deletions count one edit each")
+    void distance_SubstitutionAndDeletion_ReturnsTwo() {
+        assertThat(EditDistance.distance("bradberry", "bradbury", 2)).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Verify that distances beyond the bound are reported as bound plus one")
+    void distance_BeyondMax_ReturnsMaxPlusOne() {
+        assertThat(EditDistance.distance("dune", "emma", 1)).isEqualTo(2);
+        assertThat(EditDistance.distance("dune", "dune messiah", 2)).isEqualTo(3);
+    }
+}
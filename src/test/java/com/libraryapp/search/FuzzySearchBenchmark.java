@@ -0,0 +1,101 @@
+package com.libraryapp.search;
+
+import com.libraryapp.dto.book.BookResponseDto;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// Search latency on a synthetic catalog. Budget: fuzzy searches within 10 ms at p99 for
+// several million titles. Run main() after test-compile, e.g. from the IDE
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class FuzzySearchBenchmark {
+
+    private static final List<String> AUTHORS = List.of(
+            "J. R. R. Tolkien", "Ray Bradbury", "Ursula K. Le Guin", "Isaac Asimov",
+            "Agatha Christie", "Fyodor Dostoevsky", "Gabriel Garcia Marquez", "Toni Morrison");
+    private static final List<String> QUERIES = List.of(
+            "Tolkein", "Bradberry", "Dostoyevsky", "Agatha Cristie", "Asimof foundation");
+    private static final String LETTERS = "abcdefghijklmnopqrstuvwxyz";
+    private static final int VOCABULARY_SIZE = 200_000;
+
+    @Param("2000000")
+    private int catalogSize;
+
+    private InvertedIndex index;
+    private List<List<String>> queries;
+    private int nextQuery;
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(FuzzySearchBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+
+    @Setup(Level.Trial)
+    public void buildCatalog() {
+        Random random = new Random(42);
+        String[] vocabulary = new String[VOCABULARY_SIZE];
+        for (int i = 0; i < vocabulary.length; i++) {
+            vocabulary[i] = randomWord(random);
+        }
+
+        index = new InvertedIndex();
+        for (int i = 0; i < catalogSize; i++) {
+            String title = vocabulary[random.nextInt(vocabulary.length)] + " "
+                    + vocabulary[random.nextInt(vocabulary.length)] + " "
+                    + (random.nextInt(10) == 0 ? "foundation" : vocabulary[i % vocabulary.length]);
+            String author = random.nextInt(100) == 0
+                    ? AUTHORS.get(random.nextInt(AUTHORS.size()))
+                    : vocabulary[random.nextInt(vocabulary.length)] + " "
+                    + vocabulary[random.nextInt(vocabulary.length)];
+            index.put(new BookResponseDto(String.valueOf(i), title, author, "Fiction", false, 0L));
+        }
+        queries = QUERIES.stream().map(Tokenizer::tokenize).toList();
+    }
+
+    @Benchmark
+    public List<InvertedIndex.SearchHit> fuzzySearch() {
+        return index.search(nextQuery(), true, null, 20);
+    }
+
+    @Benchmark
+    public List<InvertedIndex.SearchHit> exactSearch() {
+        return index.search(nextQuery(), false, null, 20);
+    }
+
+    private List<String> nextQuery() {
+        nextQuery = (nextQuery + 1) % queries.size();
+        return queries.get(nextQuery);
+    }
+
+    private static String randomWord(Random random) {
+        StringBuilder word = new StringBuilder();
+        int length = 4 + random.nextInt(7);
+        for (int i = 0; i < length; i++) {
+            word.append(LETTERS.charAt(random.nextInt(LETTERS.length())));
+        }
+
+        return word.toString();
+    }
+}
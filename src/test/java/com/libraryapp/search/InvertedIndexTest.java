@@ -0,0 +1,175 @@
+package com.libraryapp.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.libraryapp.dto.book.BookResponseDto;
+import com.libraryapp.search.InvertedIndex.SearchHit;
+import com.libraryapp.search.InvertedIndex.SearchPosition;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class InvertedIndexTest {
+
+    @Test
+    @DisplayName("Verify that books matching more and rarer words rank first")
+    void search_SeveralMatches_RanksByRelevance() {
+        // Given
+        InvertedIndex index = new InvertedIndex();
+        index.put(book("1", "The Hobbit", "J. R. R. Tolkien", "Fantasy"));
+        index.put(book("2", "The Silmarillion", "J. R. R. Tolkien", "Fantasy"));
+        index.put(book("3", "Dune", "Frank Herbert", "Science Fiction"));
+
+        // When
+        List<SearchHit> hits =
+                index.search(Tokenizer.tokenize("tolkien hobbit"), false, null, 10);
+
+        // Then
+        assertThat(hits).extracting(hit -> hit.book().id()).containsExactly("1", "2");
+    }
+
+    @Test
+    @DisplayName("Verify that searches ignore case and accents")
+    void search_AccentedTitle_MatchesPlainQuery() {
+        // Given
+        InvertedIndex index = new InvertedIndex();
+        index.put(book("1", "Les Misérables", "Victor Hugo", "Novel"));
+
+        // When
+        List<SearchHit> hits = index.search(Tokenizer.tokenize("MISERABLES"), false, null, 10);
+
+        // Then
+        assertThat(hits).extracting(hit -> hit.book().id()).containsExactly("1");
+    }
+
+    @Test
+    @DisplayName("Verify that skipping hopeless documents doesn't change the top hits")
+    void search_FrequentAndRareWords_ReturnsSameTopHitsAsFullRanking() {
+        // Given
+        InvertedIndex index = new InvertedIndex();
+        Random random = new Random(7);
+        String[] words = {"the", "lord", "rings", "night", "dune", "emma", "war", "peace"};
+        for (int i = 0; i < 500; i++) {
+            String title = "the " + words[random.nextInt(words.length)] + " "
+                    + words[random.nextInt(words.length)];
+            index.put(book(String.valueOf(i), title, "Author", "Category"));
+        }
+        List<String> terms = Tokenizer.tokenize("the war of the rings");
+
+        // When
+        List<SearchHit> topHits = index.search(terms, false, null, 5);
+
+        // Then
+        assertThat(topHits).isEqualTo(index.search(terms, false, null, 500).subList(0, 5));
+    }
+
+    @Test
+    @DisplayName("Verify that a search continues after the given position")
+    void search_AfterPosition_ReturnsNextHits() {
+        // Given
+        InvertedIndex index = new InvertedIndex();
+        index.put(book("1", "Dune", "Frank Herbert", "Science Fiction"));
+        index.put(book("2", "Dune Messiah", "Frank Herbert", "Science Fiction"));
+        index.put(book("3", "Children of Dune", "Frank Herbert", "Science Fiction"));
+        List<String> terms = Tokenizer.tokenize("dune");
+        SearchHit first = index.search(terms, false, null, 1).get(0);
+
+        // When
+        List<SearchHit> rest = index.search(
+                terms, false, new SearchPosition(first.score(), first.book().id()), 10);
+
+        // Then
+        assertThat(rest).hasSize(2)
+                .extracting(hit -> hit.book().id())
+                .doesNotContain(first.book().id());
+    }
+
+    @Test
+    @DisplayName("Verify that paging through hits returns every hit exactly once")
+    void search_PagedWithSkippedLists_ReturnsSameHitsAsOnePage() {
+        // Given
+        InvertedIndex index = new InvertedIndex();
+        Random random = new Random(11);
+        String[] words = {"the", "lord", "rings", "night", "dune", "emma", "war", "peace"};
+        for (int i = 0; i < 500; i++) {
+            String title = "the " + words[random.nextInt(words.length)] + " "
+                    + words[random.nextInt(words.length)] + " "
+                    + words[random.nextInt(words.length)];
+            index.put(book(String.valueOf(i), title, "Author", "Category"));
+        }
+        List<String> terms = Tokenizer.tokenize("the war and peace of the lord of the rings");
+
+        // When
+        List<SearchHit> paged = new ArrayList<>();
+        SearchPosition after = null;
+        List<SearchHit> page;
+        do {
+            page = index.search(terms, false, after, 7);
+            paged.addAll(page);
+            if (!page.isEmpty()) {
+                SearchHit last = page.get(page.size() - 1);
+                after = new SearchPosition(last.score(), last.book().id());
+            }
+        } while (!page.isEmpty());
+
+        // Then
+        assertThat(paged).isEqualTo(index.search(terms, false, null, 500));
+    }
+
+    @Test
+    @DisplayName("Verify that removed and retitled books are found by their new words only")
+    void put_RetitledAndRemovedBooks_UpdatesHits() {
+        // Given
+        InvertedIndex index = new InvertedIndex();
+        index.put(book("1", "Dune", "Frank Herbert", "Science Fiction"));
+        index.put(book("2", "Emma", "Jane Austen", "Novel"));
+
+        // When
+        index.put(book("1", "Dune Messiah", "Frank Herbert", "Science Fiction"));
+        index.remove("2");
+
+        // Then
+        assertThat(index.search(Tokenizer.tokenize("messiah"), false, null, 10)).hasSize(1);
+        assertThat(index.search(Tokenizer.tokenize("emma"), false, null, 10)).isEmpty();
+        assertThat(index.size()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Verify that a fuzzy search finds misspelled authors")
+    void search_FuzzyMisspelledAuthors_ReturnsBooks() {
+        // Given
+        InvertedIndex index = new InvertedIndex();
+        index.put(book("1", "The Hobbit", "J. R. R. Tolkien", "Fantasy"));
+        index.put(book("2", "Fahrenheit 451", "Ray Bradbury", "Science Fiction"));
+
+        // When
+        List<SearchHit> tolkien = index.search(Tokenizer.tokenize("Tolkein"), true, null, 10);
+        List<SearchHit> bradbury = index.search(Tokenizer.tokenize("Bradberry"), true, null, 10);
+
+        // Then
+        assertThat(tolkien).extracting(hit -> hit.book().id()).containsExactly("1");
+        assertThat(bradbury).extracting(hit -> hit.book().id()).containsExactly("2");
+        assertThat(index.search(Tokenizer.tokenize("Tolkein"), false, null, 10)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Verify that exact matches rank above misspelled ones in a fuzzy search")
+    void search_FuzzyExactAndSimilarWords_RanksExactFirst() {
+        // Given
+        InvertedIndex index = new InvertedIndex();
+        index.put(book("1", "Stories", "Anonymous", "Fiction"));
+        index.put(book("2", "Stores", "Anonymous", "Business"));
+
+        // When
+        List<SearchHit> hits = index.search(Tokenizer.tokenize("stores"), true, null, 10);
+
+        // Then
+        assertThat(hits).extracting(hit -> hit.book().id()).containsExactly("2", "1");
+    }
+
+    private static BookResponseDto book(String id, String title, String author, String category) {
+        return new BookResponseDto(id, title, author, category, false, 0L);
+    }
+}
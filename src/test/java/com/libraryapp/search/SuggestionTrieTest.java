@@ -0,0 +1,54 @@
+package com.libraryapp.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.libraryapp.search.SuggestionTrie.Suggestion;
+import java.util.TreeMap;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class SuggestionTrieTest {
+
+    @Test
+    @DisplayName("Verify that suggestions for a prefix come most popular first")
+    void suggest_SharedPrefix_ReturnsByPopularity() {
+        // Given
+        TreeMap<String, Suggestion> suggestions = new TreeMap<>();
+        suggestions.put("the hobbit", new Suggestion("The Hobbit", 5));
+        suggestions.put("the hunger games", new Suggestion("The Hunger Games", 9));
+        suggestions.put("the road", new Suggestion("The Road", 1));
+        suggestions.put("dune", new Suggestion("Dune", 20));
+        SuggestionTrie trie = SuggestionTrie.build(suggestions, 2);
+
+        // When, then
+        assertThat(trie.suggest("the")).extracting(Suggestion::text)
+                .containsExactly("The Hunger Games", "The Hobbit");
+        assertThat(trie.suggest("the h")).extracting(Suggestion::text)
+                .containsExactly("The Hunger Games", "The Hobbit");
+        assertThat(trie.suggest("the r")).extracting(Suggestion::text)
+                .containsExactly("The Road");
+        assertThat(trie.suggest("thx")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Verify that patches change a copy and leave the original snapshot intact")
+    void with_AddedAndRemovedKeys_ReturnsPatchedCopy() {
+        // Given
+        TreeMap<String, Suggestion> suggestions = new TreeMap<>();
+        suggestions.put("dune", new Suggestion("Dune", 3));
+        suggestions.put("dune messiah", new Suggestion("Dune Messiah", 1));
+        SuggestionTrie trie = SuggestionTrie.build(suggestions, 10);
+
+        // When
+        SuggestionTrie patched = trie
+                .with("dungeon", new Suggestion("Dungeon", 2))
+                .with("dune", null)
+                .with("dune messiah", new Suggestion("Dune Messiah", 4));
+
+        // Then
+        assertThat(patched.suggest("dun")).extracting(Suggestion::text)
+                .containsExactly("Dune Messiah", "Dungeon");
+        assertThat(trie.suggest("dun")).extracting(Suggestion::text)
+                .containsExactly("Dune", "Dune Messiah");
+    }
+}
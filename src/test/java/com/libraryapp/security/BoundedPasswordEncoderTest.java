@@ -0,0 +1,96 @@
+package com.libraryapp.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.when;
+
+import com.libraryapp.exception.custom.PasswordHashingUnavailableException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+@ExtendWith(MockitoExtension.class)
+public class BoundedPasswordEncoderTest {
+
+    private static final String RAW_PASSWORD = "password";
+    private static final String ENCODED_PASSWORD = "encoded";
+
+    @Mock
+    private PasswordEncoder delegate;
+
+    private MeterRegistry meterRegistry;
+    private BoundedPasswordEncoder passwordEncoder;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        passwordEncoder = new BoundedPasswordEncoder(delegate, meterRegistry, 1, 1, 1000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        passwordEncoder.shutdown();
+    }
+
+    @Test
+    @DisplayName("Verify that hashing is delegated and timed")
+    void encode_IdleExecutor_ReturnsDelegateResult() {
+        // Given
+        when(delegate.encode(RAW_PASSWORD)).thenReturn(ENCODED_PASSWORD);
+        when(delegate.matches(RAW_PASSWORD, ENCODED_PASSWORD)).thenReturn(true);
+
+        // When
+        String encoded = passwordEncoder.encode(RAW_PASSWORD);
+        boolean matches = passwordEncoder.matches(RAW_PASSWORD, ENCODED_PASSWORD);
+
+        // Then
+        assertThat(encoded).isEqualTo(ENCODED_PASSWORD);
+        assertThat(matches).isTrue();
+        assertThat(meterRegistry.get("password.hashing").tag("operation", "encode")
+                .timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("password.hashing").tag("operation", "matches")
+                .timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Verify that hashing is rejected once the pool and queue are full")
+    void encode_SaturatedExecutor_ThrowsPasswordHashingUnavailableException()
+            throws InterruptedException {
+        // Given
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(delegate.encode(RAW_PASSWORD)).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return ENCODED_PASSWORD;
+        });
+
+        final CompletableFuture<String> running =
+                CompletableFuture.supplyAsync(() -> passwordEncoder.encode(RAW_PASSWORD));
+        started.await(1, TimeUnit.SECONDS);
+        final CompletableFuture<String> queued =
+                CompletableFuture.supplyAsync(() -> passwordEncoder.encode(RAW_PASSWORD));
+        while (meterRegistry.get("executor.queued").gauge().value() < 1) {
+            Thread.onSpinWait();
+        }
+
+        // When
+        assertThrows(PasswordHashingUnavailableException.class,
+                () -> passwordEncoder.encode(RAW_PASSWORD));
+
+        // Then
+        release.countDown();
+        assertThat(running.join()).isEqualTo(ENCODED_PASSWORD);
+        assertThat(queued.join()).isEqualTo(ENCODED_PASSWORD);
+    }
+}
@@ -0,0 +1,98 @@
+package com.libraryapp.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.libraryapp.event.UserChangedEvent;
+import com.libraryapp.model.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+
+@ExtendWith(MockitoExtension.class)
+public class CachingAuthenticationProviderTest {
+
+    private static final String EMAIL = "test@example.com";
+    private static final String PASSWORD = "password";
+
+    @Mock
+    private AuthenticationProvider delegate;
+
+    private CachingAuthenticationProvider cachingAuthenticationProvider;
+    private VerifiedCredentialsCache verifiedCredentialsCache;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        verifiedCredentialsCache = new VerifiedCredentialsCache(new SimpleMeterRegistry(), 100, 60);
+        cachingAuthenticationProvider =
+                new CachingAuthenticationProvider(delegate, verifiedCredentialsCache);
+        user = new User();
+        user.setId("1");
+        user.setEmail(EMAIL);
+        user.setRole(User.Role.CUSTOMER);
+    }
+
+    @Test
+    @DisplayName("Verify that repeated valid credentials are only verified once")
+    void authenticate_RepeatedCredentials_DelegatesOnce() {
+        // Given
+        when(delegate.authenticate(any())).thenReturn(UsernamePasswordAuthenticationToken
+                .authenticated(user, PASSWORD, user.getAuthorities()));
+
+        // When
+        cachingAuthenticationProvider.authenticate(getCredentials(PASSWORD));
+        Authentication actual =
+                cachingAuthenticationProvider.authenticate(getCredentials(PASSWORD));
+
+        // Then
+        assertThat(actual.isAuthenticated()).isTrue();
+        assertThat(actual.getPrincipal()).isSameAs(user);
+        verify(delegate, times(1)).authenticate(any());
+    }
+
+    @Test
+    @DisplayName("Verify that a different password is not served from the cache")
+    void authenticate_DifferentPassword_Delegates() {
+        // Given
+        when(delegate.authenticate(any())).thenReturn(UsernamePasswordAuthenticationToken
+                .authenticated(user, PASSWORD, user.getAuthorities()));
+
+        // When
+        cachingAuthenticationProvider.authenticate(getCredentials(PASSWORD));
+        cachingAuthenticationProvider.authenticate(getCredentials("otherPassword"));
+
+        // Then
+        verify(delegate, times(2)).authenticate(any());
+    }
+
+    @Test
+    @DisplayName("Verify that credentials are verified again after the user changed")
+    void authenticate_AfterUserChanged_Delegates() {
+        // Given
+        when(delegate.authenticate(any())).thenReturn(UsernamePasswordAuthenticationToken
+                .authenticated(user, PASSWORD, user.getAuthorities()));
+
+        // When
+        cachingAuthenticationProvider.authenticate(getCredentials(PASSWORD));
+        verifiedCredentialsCache.onUserChanged(new UserChangedEvent(user));
+        cachingAuthenticationProvider.authenticate(getCredentials(PASSWORD));
+
+        // Then
+        verify(delegate, times(2)).authenticate(any());
+    }
+
+    private Authentication getCredentials(String password) {
+        return UsernamePasswordAuthenticationToken.unauthenticated(EMAIL, password);
+    }
+}
@@ -0,0 +1,115 @@
+package com.libraryapp.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.libraryapp.event.UserChangedEvent;
+import com.libraryapp.model.User;
+import com.libraryapp.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+@ExtendWith(MockitoExtension.class)
+public class CustomUserDetailsServiceTest {
+
+    private static final String EMAIL = "test@example.com";
+
+    @Mock
+    private UserRepository userRepository;
+
+    private MeterRegistry meterRegistry;
+    private CustomUserDetailsService userDetailsService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        userDetailsService = new CustomUserDetailsService(userRepository, meterRegistry, 100, 60);
+    }
+
+    @Test
+    @DisplayName("Verify that repeated lookups are served from the cache")
+    void loadUserByUsername_RepeatedLookup_QueriesUserOnce() {
+        // Given
+        User user = getDummyUser();
+
+        when(userRepository.findByEmail(EMAIL)).thenReturn(Optional.of(user));
+
+        // When
+        UserDetails first = userDetailsService.loadUserByUsername(EMAIL);
+        UserDetails second = userDetailsService.loadUserByUsername(EMAIL);
+
+        // Then
+        assertThat(first).isEqualTo(user);
+        assertThat(second).isEqualTo(user).isNotSameAs(first);
+        verify(userRepository, times(1)).findByEmail(EMAIL);
+        assertThat(meterRegistry.get("cache.gets").tag("result", "hit")
+                .functionCounter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Verify that changing a returned user doesn't change the cached one")
+    void loadUserByUsername_ReturnedUserModified_CacheKeepsOriginal() {
+        // Given
+        User user = getDummyUser();
+
+        when(userRepository.findByEmail(EMAIL)).thenReturn(Optional.of(user));
+
+        // When
+        User first = (User) userDetailsService.loadUserByUsername(EMAIL);
+        first.setFirstName("Unsaved");
+        User second = (User) userDetailsService.loadUserByUsername(EMAIL);
+
+        // Then
+        assertThat(second.getFirstName()).isNull();
+        assertThat(user.getFirstName()).isNull();
+    }
+
+    @Test
+    @DisplayName("Verify that a changed user is reloaded")
+    void loadUserByUsername_AfterUserChanged_QueriesUserAgain() {
+        // Given
+        User user = getDummyUser();
+
+        when(userRepository.findByEmail(EMAIL)).thenReturn(Optional.of(user));
+
+        // When
+        userDetailsService.loadUserByUsername(EMAIL);
+        userDetailsService.onUserChanged(new UserChangedEvent(user));
+        userDetailsService.loadUserByUsername(EMAIL);
+
+        // Then
+        verify(userRepository, times(2)).findByEmail(EMAIL);
+    }
+
+    @Test
+    @DisplayName("Verify that an unknown email is rejected")
+    void loadUserByUsername_UnknownEmail_ThrowsException() {
+        // Given
+        when(userRepository.findByEmail(EMAIL)).thenReturn(Optional.empty());
+
+        // When & Then
+        assertThrows(UsernameNotFoundException.class,
+                () -> userDetailsService.loadUserByUsername(EMAIL));
+    }
+
+    private User getDummyUser() {
+        User user = new User();
+        user.setId("1");
+        user.setEmail(EMAIL);
+        user.setRole(User.Role.CUSTOMER);
+        user.setIsDeleted(false);
+        return user;
+    }
+}
@@ -0,0 +1,58 @@
+package com.libraryapp.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.libraryapp.exception.custom.PasswordHashingUnavailableException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.BadCredentialsException;
+
+public class HttpBasicAuthenticationEntryPointTest {
+
+    private HttpBasicAuthenticationEntryPoint entryPoint;
+    private MockHttpServletResponse response;
+
+    @BeforeEach
+    void setUp() {
+        entryPoint = new HttpBasicAuthenticationEntryPoint(
+                new ObjectMapper().findAndRegisterModules());
+        response = new MockHttpServletResponse();
+    }
+
+    @Test
+    @DisplayName("Verify that saturated password hashing answers 503 with Retry-After")
+    void commence_PasswordHashingUnavailable_ReturnsServiceUnavailable() throws Exception {
+        // Given
+        PasswordHashingUnavailableException exception =
+                new PasswordHashingUnavailableException("Password hashing is unavailable");
+
+        // When
+        entryPoint.commence(new MockHttpServletRequest(), response, exception);
+
+        // Then
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE.value());
+        assertThat(response.getHeader(HttpHeaders.RETRY_AFTER))
+                .isEqualTo(PasswordHashingUnavailableException.RETRY_AFTER_SECONDS);
+        assertThat(response.getHeader(HttpHeaders.WWW_AUTHENTICATE)).isNull();
+        assertThat(response.getContentAsString()).contains("Password hashing is unavailable");
+    }
+
+    @Test
+    @DisplayName("Verify that bad credentials still answer 401 with a Basic challenge")
+    void commence_BadCredentials_ReturnsUnauthorized() throws Exception {
+        // When
+        entryPoint.commence(new MockHttpServletRequest(), response,
+                new BadCredentialsException("Bad credentials"));
+
+        // Then
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.UNAUTHORIZED.value());
+        assertThat(response.getHeader(HttpHeaders.WWW_AUTHENTICATE))
+                .isEqualTo("Basic realm=\"Realm\"");
+    }
+}
@@ -0,0 +1,160 @@
+package com.libraryapp.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import com.libraryapp.event.UserChangedEvent;
+import com.libraryapp.model.User;
+import com.libraryapp.repository.UserRepository;
+import com.libraryapp.security.util.JwtUtil;
+import io.github.cdimascio.dotenv.Dotenv;
+import jakarta.servlet.FilterChain;
+import java.util.Optional;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class JwtAuthenticationFilterTest {
+
+    private JwtUtil jwtUtil;
+    private UserDetailsService userDetailsService;
+    private UserRepository userRepository;
+    private SecurityVersionRegistry securityVersionRegistry;
+    private CurrentUserContext currentUserContext;
+    private JwtAuthenticationFilter jwtAuthenticationFilter;
+
+    @BeforeEach
+    void setUp() {
+        Dotenv dotenv = mock(Dotenv.class);
+        when(dotenv.get("JWT_SECRET_STRING"))
+                .thenReturn("superLong12345AndStrong12345SecretString");
+        jwtUtil = new JwtUtil(dotenv, 100);
+        ReflectionTestUtils.setField(jwtUtil, "expirationMinutes", 60L);
+        userDetailsService = mock(UserDetailsService.class);
+        userRepository = mock(UserRepository.class);
+        when(userRepository.findSecurityVersionById("1")).thenReturn(Optional.of(getDummyUser()));
+        securityVersionRegistry = new SecurityVersionRegistry(userRepository, 100, 30);
+        currentUserContext = new CurrentUserContext();
+        jwtAuthenticationFilter = new JwtAuthenticationFilter(
+                jwtUtil, userDetailsService, securityVersionRegistry, currentUserContext);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    @DisplayName("Verify that a current token is authenticated from its claims alone")
+    void doFilter_CurrentToken_AuthenticatesWithoutUserLookup() throws Exception {
+        // Given
+        User user = getDummyUser();
+        MockHttpServletRequest request = getRequestWithToken(jwtUtil.generateToken(user));
+
+        // When
+        jwtAuthenticationFilter.doFilter(request, new MockHttpServletResponse(),
+                mock(FilterChain.class));
+
+        // Then
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        assertThat(authentication.getPrincipal())
+                .isEqualTo(new AuthenticatedUser("1", "test@example.com", User.Role.CUSTOMER));
+        verifyNoInteractions(userDetailsService);
+    }
+
+    @Test
+    @DisplayName("Verify that a token issued before a role change is rechecked against the user")
+    void doFilter_StaleToken_LoadsCurrentUser() throws Exception {
+        // Given
+        User user = getDummyUser();
+        final MockHttpServletRequest request = getRequestWithToken(jwtUtil.generateToken(user));
+        User promotedUser = getDummyUser();
+        promotedUser.setRole(User.Role.MANAGER);
+        promotedUser.setSecurityVersion(1L);
+        securityVersionRegistry.onUserChanged(new UserChangedEvent(promotedUser));
+
+        when(userDetailsService.loadUserByUsername("test@example.com")).thenReturn(promotedUser);
+
+        // When
+        jwtAuthenticationFilter.doFilter(request, new MockHttpServletResponse(),
+                mock(FilterChain.class));
+
+        // Then
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        assertThat(authentication.getPrincipal()).isEqualTo(promotedUser);
+        assertThat(currentUserContext.getOrLoad(() -> null)).isSameAs(promotedUser);
+        verify(userDetailsService, times(1)).loadUserByUsername("test@example.com");
+    }
+
+    @Test
+    @DisplayName("Verify that a stale token is rechecked even when no change was seen locally")
+    void doFilter_StaleTokenAfterRestart_LoadsCurrentUser() throws Exception {
+        // Given
+        User user = getDummyUser();
+        user.setRole(User.Role.MANAGER);
+        final MockHttpServletRequest request = getRequestWithToken(jwtUtil.generateToken(user));
+        User demotedUser = getDummyUser();
+        demotedUser.setSecurityVersion(1L);
+
+        when(userRepository.findSecurityVersionById("1")).thenReturn(Optional.of(demotedUser));
+        when(userDetailsService.loadUserByUsername("test@example.com")).thenReturn(demotedUser);
+
+        // When
+        jwtAuthenticationFilter.doFilter(request, new MockHttpServletResponse(),
+                mock(FilterChain.class));
+
+        // Then
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        assertThat(authentication.getPrincipal()).isEqualTo(demotedUser);
+        assertThat(authentication.getAuthorities())
+                .extracting(Object::toString)
+                .containsExactly("ROLE_CUSTOMER");
+    }
+
+    @Test
+    @DisplayName("Verify that a token of a deleted user is not authenticated")
+    void doFilter_DeletedUser_LeavesRequestUnauthenticated() throws Exception {
+        // Given
+        User user = getDummyUser();
+        final MockHttpServletRequest request = getRequestWithToken(jwtUtil.generateToken(user));
+        User deletedUser = getDummyUser();
+        deletedUser.setIsDeleted(true);
+        deletedUser.setSecurityVersion(1L);
+        securityVersionRegistry.onUserChanged(new UserChangedEvent(deletedUser));
+
+        when(userDetailsService.loadUserByUsername("test@example.com")).thenReturn(deletedUser);
+
+        // When
+        jwtAuthenticationFilter.doFilter(request, new MockHttpServletResponse(),
+                mock(FilterChain.class));
+
+        // Then
+        assertThat(SecurityContextHolder.getContext().getAuthentication()).isNull();
+    }
+
+    private MockHttpServletRequest getRequestWithToken(String token) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer " + token);
+        return request;
+    }
+
+    private User getDummyUser() {
+        User user = new User();
+        user.setId("1");
+        user.setEmail("test@example.com");
+        user.setRole(User.Role.CUSTOMER);
+        user.setIsDeleted(false);
+        return user;
+    }
+}
@@ -0,0 +1,105 @@
+package com.libraryapp.security.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import com.libraryapp.model.User;
+import com.libraryapp.repository.UserRepository;
+import com.libraryapp.security.AuthenticatedUser;
+import com.libraryapp.security.CurrentUserContext;
+import java.util.Optional;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+@ExtendWith(MockitoExtension.class)
+public class AuthenticationUtilTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    private CurrentUserContext currentUserContext;
+    private AuthenticationUtil authenticationUtil;
+
+    @BeforeEach
+    void setUp() {
+        // A fresh context stands in for a new request scope
+        currentUserContext = new CurrentUserContext();
+        authenticationUtil = new AuthenticationUtil(userRepository, currentUserContext);
+
+        AuthenticatedUser principal =
+                new AuthenticatedUser("1", "test@example.com", User.Role.CUSTOMER);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(
+                        principal, null, principal.getAuthorities()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    @DisplayName("Verify that the current user is queried once per request")
+    void getCurrentUserFromDb_CalledRepeatedly_QueriesUserOnce() {
+        // Given
+        User user = getDummyUser();
+
+        when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(user));
+
+        // When
+        User first = authenticationUtil.getCurrentUserFromDb();
+        User second = authenticationUtil.getCurrentUserFromDb();
+        User third = authenticationUtil.getCurrentUserFromDb();
+
+        // Then
+        assertThat(first).isSameAs(user);
+        assertThat(second).isSameAs(user);
+        assertThat(third).isSameAs(user);
+        verify(userRepository, times(1)).findByEmail("test@example.com");
+    }
+
+    @Test
+    @DisplayName("Verify that a user already loaded by the filter is not queried again")
+    void getCurrentUserFromDb_UserLoadedByFilter_DoesNotQueryUser() {
+        // Given
+        User user = getDummyUser();
+        currentUserContext.setUser(user);
+
+        // When
+        User actual = authenticationUtil.getCurrentUserFromDb();
+
+        // Then
+        assertThat(actual).isSameAs(user);
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    @DisplayName("Verify that the current user id is taken from the token without a query")
+    void getCurrentUserId_TokenPrincipal_DoesNotQueryUser() {
+        // When
+        String actual = authenticationUtil.getCurrentUserId();
+
+        // Then
+        assertThat(actual).isEqualTo("1");
+        verifyNoInteractions(userRepository);
+    }
+
+    private User getDummyUser() {
+        User user = new User();
+        user.setId("1");
+        user.setEmail("test@example.com");
+        user.setRole(User.Role.CUSTOMER);
+        user.setIsDeleted(false);
+        return user;
+    }
+}
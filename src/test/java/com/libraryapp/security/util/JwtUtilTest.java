@@ -0,0 +1,80 @@
+package com.libraryapp.security.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.libraryapp.model.User;
+import io.github.cdimascio.dotenv.Dotenv;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class JwtUtilTest {
+
+    private static final String SECRET = "superLong12345AndStrong12345SecretString";
+
+    private JwtUtil jwtUtil;
+
+    @BeforeEach
+    void setUp() {
+        Dotenv dotenv = mock(Dotenv.class);
+        when(dotenv.get("JWT_SECRET_STRING")).thenReturn(SECRET);
+        jwtUtil = new JwtUtil(dotenv, 100);
+        ReflectionTestUtils.setField(jwtUtil, "expirationMinutes", 60L);
+    }
+
+    @Test
+    @DisplayName("Verify that a generated token is accepted and carries the user claims")
+    void getVerifiedClaims_ValidToken_ReturnsClaims() {
+        // Given
+        String token = jwtUtil.generateToken(getDummyUser());
+
+        // When
+        Claims actual = jwtUtil.getVerifiedClaims(token);
+
+        // Then
+        assertThat(actual.getSubject()).isEqualTo("test@example.com");
+        assertThat(actual.get(JwtUtil.USER_ID_CLAIM, String.class)).isEqualTo("1");
+        assertThat(actual.get(JwtUtil.ROLE_CLAIM, String.class)).isEqualTo("CUSTOMER");
+        assertThat(actual.get(JwtUtil.SECURITY_VERSION_CLAIM, Long.class)).isEqualTo(3L);
+    }
+
+    @Test
+    @DisplayName("Verify that a repeated token is served from the verified claims cache")
+    void getVerifiedClaims_SameTokenTwice_ReturnsCachedClaims() {
+        // Given
+        String token = jwtUtil.generateToken(getDummyUser());
+
+        // When
+        Claims first = jwtUtil.getVerifiedClaims(token);
+        Claims second = jwtUtil.getVerifiedClaims(token);
+
+        // Then
+        assertThat(second).isSameAs(first);
+    }
+
+    @Test
+    @DisplayName("Verify that a tampered token is rejected")
+    void getVerifiedClaims_TamperedToken_ThrowsException() {
+        // Given
+        String token = jwtUtil.generateToken(getDummyUser());
+        String tamperedToken = token.substring(0, token.length() - 2) + "xx";
+
+        // When & Then
+        assertThrows(JwtException.class, () -> jwtUtil.getVerifiedClaims(tamperedToken));
+    }
+
+    private User getDummyUser() {
+        User user = new User();
+        user.setId("1");
+        user.setEmail("test@example.com");
+        user.setRole(User.Role.CUSTOMER);
+        user.setSecurityVersion(3L);
+        return user;
+    }
+}
@@ -2,26 +2,47 @@ package com.libraryapp.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.libraryapp.cache.BookCache;
+import com.libraryapp.cache.BookFacetsCache;
+import com.libraryapp.cache.BookLookupCoalescer;
+import com.libraryapp.dto.BatchGetRequestDto;
+import com.libraryapp.dto.book.BookBatchResponseDto;
 import com.libraryapp.dto.book.BookRequestDto;
 import com.libraryapp.dto.book.BookResponseDto;
+import com.libraryapp.event.BookChangedEvent;
+import com.libraryapp.event.BookCountsChangedEvent;
 import com.libraryapp.exception.custom.EntityNotFoundException;
+import com.libraryapp.exception.custom.InvalidQueryParameterException;
+import com.libraryapp.exception.custom.PreconditionFailedException;
 import com.libraryapp.mapper.BookMapper;
 import com.libraryapp.model.Book;
 import com.libraryapp.repository.BookRepository;
+import com.libraryapp.repository.support.BookFilter;
+import com.libraryapp.search.BookSearchIndex;
+import com.libraryapp.search.BookSuggester;
 import com.libraryapp.service.impl.BookServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.IntStream;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Pageable;
 
 @ExtendWith(MockitoExtension.class)
@@ -30,9 +51,27 @@ public class BookServiceTest {
     @Mock
     private BookRepository bookRepository;
 
+    @Spy
+    private BookCache bookCache = new BookCache(new SimpleMeterRegistry(), true, 100, 60, 1);
+
+    @Mock
+    private BookFacetsCache bookFacetsCache;
+
+    @Mock
+    private BookLookupCoalescer bookLookupCoalescer;
+
+    @Mock
+    private BookSearchIndex bookSearchIndex;
+
+    @Mock
+    private BookSuggester bookSuggester;
+
     @Mock
     private BookMapper bookMapper;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private BookServiceImpl bookService;
 
@@ -51,7 +90,7 @@ public class BookServiceTest {
                 .author("Author")
                 .build();
         BookResponseDto bookResponseDto =
-                new BookResponseDto("1", "Title", "Author", "Category", false);
+                new BookResponseDto("1", "Title", "Author", "Category", false, 0L);
 
         when(bookMapper.toEntity(bookRequestDto)).thenReturn(book);
         when(bookRepository.save(book)).thenReturn(savedBook);
@@ -65,6 +104,7 @@ public class BookServiceTest {
         verify(bookMapper).toEntity(bookRequestDto);
         verify(bookRepository).save(book);
         verify(bookMapper).toDto(savedBook);
+        verify(eventPublisher).publishEvent(new BookChangedEvent("1"));
     }
 
     @Test
@@ -78,22 +118,35 @@ public class BookServiceTest {
                 .author("Author")
                 .build();
         BookResponseDto bookResponseDto =
-                new BookResponseDto("1", "Title", "Author", "Category", false);
+                new BookResponseDto("1", "Title", "Author", "Category", false, 0L);
         List<Book> books = Collections.singletonList(book);
         List<BookResponseDto> bookResponseDtos = Collections.singletonList(bookResponseDto);
 
-        when(bookRepository.findAllByIsDeletedFalse(pageable)).thenReturn(books);
+        when(bookRepository.findAllByIsDeletedFalse(BookFilter.NONE, Set.of(), pageable))
+                .thenReturn(books);
         when(bookMapper.toDto(book)).thenReturn(bookResponseDto);
 
         // When
-        List<BookResponseDto> actual = bookService.findAll(pageable);
+        List<BookResponseDto> actual = bookService.findAll(BookFilter.NONE, Set.of(), pageable);
 
         // Then
         assertThat(actual).isEqualTo(bookResponseDtos);
-        verify(bookRepository).findAllByIsDeletedFalse(pageable);
+        verify(bookRepository).findAllByIsDeletedFalse(BookFilter.NONE, Set.of(), pageable);
         verify(bookMapper).toDto(book);
     }
 
+    @Test
+    @DisplayName("Find all books rejects fields the response doesn't have")
+    void findAll_UnknownField_ThrowsInvalidQueryParameterException() {
+        // Given
+        Pageable pageable = Pageable.unpaged();
+
+        // When & Then
+        assertThrows(InvalidQueryParameterException.class,
+                () -> bookService.findAll(BookFilter.NONE, Set.of("isDeleted"), pageable));
+        verify(bookRepository, never()).findAllByIsDeletedFalse(any(), any(), any());
+    }
+
     @Test
     @DisplayName("Find book by ID successfully")
     void findById_ValidId_ReturnsBookResponseDto() {
@@ -106,9 +159,9 @@ public class BookServiceTest {
                 .isDeleted(false)
                 .build();
         BookResponseDto bookResponseDto =
-                new BookResponseDto(id, "Title", "Author", "Category", false);
+                new BookResponseDto(id, "Title", "Author", "Category", false, 0L);
 
-        when(bookRepository.findById(id)).thenReturn(Optional.of(book));
+        when(bookLookupCoalescer.findById(id)).thenReturn(Optional.of(book));
         when(bookMapper.toDto(book)).thenReturn(bookResponseDto);
 
         // When
@@ -116,21 +169,84 @@ public class BookServiceTest {
 
         // Then
         assertThat(actual).isEqualTo(bookResponseDto);
-        verify(bookRepository).findById(id);
+        verify(bookLookupCoalescer).findById(id);
         verify(bookMapper).toDto(book);
     }
 
+    @Test
+    @DisplayName("Find book by ID serves repeated lookups from the cache")
+    void findById_RepeatedLookup_LoadsOnce() {
+        // Given
+        String id = "1";
+        Book book = Book.builder()
+                .id(id)
+                .title("Title")
+                .build();
+        BookResponseDto bookResponseDto =
+                new BookResponseDto(id, "Title", null, null, false, 0L);
+
+        when(bookLookupCoalescer.findById(id)).thenReturn(Optional.of(book));
+        when(bookMapper.toDto(book)).thenReturn(bookResponseDto);
+
+        // When
+        bookService.findById(id);
+        BookResponseDto actual = bookService.findById(id);
+
+        // Then
+        assertThat(actual).isEqualTo(bookResponseDto);
+        verify(bookLookupCoalescer, times(1)).findById(id);
+    }
+
     @Test
     @DisplayName("Find book by ID throws exception for non-existent book")
     void findById_InvalidId_ThrowsEntityNotFoundException() {
         // Given
         String id = "1";
 
-        when(bookRepository.findById(id)).thenReturn(Optional.empty());
+        when(bookLookupCoalescer.findById(id)).thenReturn(Optional.empty());
 
         // When & Then
         assertThrows(EntityNotFoundException.class, () -> bookService.findById(id));
-        verify(bookRepository).findById(id);
+        verify(bookLookupCoalescer).findById(id);
+    }
+
+    @Test
+    @DisplayName("Find books by IDs in order, reading only uncached ones")
+    void findAllById_SomeCachedSomeMissing_ReturnsBooksInOrder() {
+        // Given
+        Book cachedBook = Book.builder().id("1").title("Cached").isDeleted(false).build();
+        final Book book = Book.builder().id("2").title("Title").isDeleted(false).build();
+        final Book deletedBook = Book.builder().id("3").title("Deleted").isDeleted(true).build();
+        BookResponseDto cachedDto = new BookResponseDto("1", "Cached", null, null, false, 0L);
+        final BookResponseDto bookDto = new BookResponseDto("2", "Title", null, null, false, 0L);
+
+        when(bookLookupCoalescer.findById("1")).thenReturn(Optional.of(cachedBook));
+        when(bookMapper.toDto(cachedBook)).thenReturn(cachedDto);
+        bookService.findById("1");
+        when(bookRepository.findAllById(any())).thenReturn(List.of(book, deletedBook));
+        when(bookMapper.toDto(book)).thenReturn(bookDto);
+
+        // When
+        BookBatchResponseDto actual =
+                bookService.findAllById(List.of("2", "4", "1", "3", "2"));
+
+        // Then
+        assertThat(actual.books()).containsExactly(bookDto, cachedDto);
+        assertThat(actual.missingIds()).containsExactly("4", "3");
+        verify(bookRepository).findAllById(Set.of("2", "3", "4"));
+    }
+
+    @Test
+    @DisplayName("Find books by IDs rejects too many IDs")
+    void findAllById_TooManyIds_ThrowsInvalidQueryParameterException() {
+        // Given
+        List<String> ids = IntStream.rangeClosed(0, BatchGetRequestDto.MAX_IDS)
+                .mapToObj(String::valueOf)
+                .toList();
+
+        // When & Then
+        assertThrows(InvalidQueryParameterException.class, () -> bookService.findAllById(ids));
+        verify(bookRepository, never()).findAllById(any());
     }
 
     @Test
@@ -138,21 +254,32 @@ public class BookServiceTest {
     void deleteById_ValidId_SoftDeletesBook() {
         // Given
         String id = "1";
-        Book book = Book.builder()
-                .id(id)
-                .title("Title")
-                .author("Author")
-                .build();
 
-        when(bookRepository.findById(id)).thenReturn(Optional.of(book));
+        Book book = Book.builder().id(id).category("Programming").author("Robert Martin").build();
+
+        when(bookRepository.markDeleted(id)).thenReturn(Optional.of(book));
 
         // When
         bookService.deleteById(id);
 
         // Then
-        verify(bookRepository).findById(id);
-        verify(bookRepository).save(book);
-        assertThat(book.getIsDeleted()).isTrue();
+        verify(bookRepository).markDeleted(id);
+        verify(bookRepository, never()).findById(id);
+        verify(bookRepository, never()).save(any());
+        verify(eventPublisher).publishEvent(new BookChangedEvent(id));
+        verify(eventPublisher).publishEvent(BookCountsChangedEvent.removed(book));
+    }
+
+    @Test
+    @DisplayName("Delete book by invalid ID")
+    void deleteById_InvalidId_ThrowsException() {
+        // Given
+        String id = "1";
+
+        when(bookRepository.markDeleted(id)).thenReturn(Optional.empty());
+
+        // When & Then
+        assertThrows(EntityNotFoundException.class, () -> bookService.deleteById(id));
     }
 
     @Test
@@ -176,7 +303,7 @@ public class BookServiceTest {
                 .isDeleted(false)
                 .build();
         BookResponseDto bookResponseDto = new BookResponseDto(id, "Updated Title",
-                "Updated Author", "Category", false);
+                "Updated Author", "Category", false, 1L);
 
         when(bookRepository.findById(id)).thenReturn(Optional.of(existingBook));
         doNothing().when(bookMapper).updateBookFromDto(existingBook, bookRequestDto);
@@ -184,7 +311,7 @@ public class BookServiceTest {
         when(bookMapper.toDto(updatedBook)).thenReturn(bookResponseDto);
 
         // When
-        BookResponseDto actual = bookService.updateById(id, bookRequestDto);
+        BookResponseDto actual = bookService.updateById(id, bookRequestDto, null);
 
         // Then
         assertThat(actual).isEqualTo(bookResponseDto);
@@ -192,6 +319,7 @@ public class BookServiceTest {
         verify(bookMapper).updateBookFromDto(existingBook, bookRequestDto);
         verify(bookRepository).save(existingBook);
         verify(bookMapper).toDto(updatedBook);
+        verify(eventPublisher).publishEvent(new BookChangedEvent(id));
     }
 
     @Test
@@ -206,7 +334,75 @@ public class BookServiceTest {
 
         // When & Then
         assertThrows(EntityNotFoundException.class,
-                () -> bookService.updateById(id, bookRequestDto));
+                () -> bookService.updateById(id, bookRequestDto, null));
         verify(bookRepository).findById(id);
     }
+
+    @Test
+    @DisplayName("Update book by ID throws exception for a stale version")
+    void updateById_StaleVersion_ThrowsPreconditionFailedException() {
+        // Given
+        String id = "1";
+        BookRequestDto bookRequestDto =
+                new BookRequestDto("Title", "Author", "Category");
+        Book existingBook = Book.builder()
+                .id(id)
+                .title("Old Title")
+                .isDeleted(false)
+                .version(2L)
+                .build();
+
+        when(bookRepository.findById(id)).thenReturn(Optional.of(existingBook));
+
+        // When & Then
+        assertThrows(PreconditionFailedException.class,
+                () -> bookService.updateById(id, bookRequestDto, 1L));
+        verify(bookRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("Update book by ID fails the precondition when the book changes before saving")
+    void updateById_ConcurrentUpdateWithVersion_ThrowsPreconditionFailedException() {
+        // Given
+        String id = "1";
+        BookRequestDto bookRequestDto =
+                new BookRequestDto("Title", "Author", "Category");
+        Book existingBook = Book.builder()
+                .id(id)
+                .title("Old Title")
+                .isDeleted(false)
+                .version(2L)
+                .build();
+
+        when(bookRepository.findById(id)).thenReturn(Optional.of(existingBook));
+        when(bookRepository.save(existingBook))
+                .thenThrow(new OptimisticLockingFailureException("Book has been modified."));
+
+        // When & Then
+        assertThrows(PreconditionFailedException.class,
+                () -> bookService.updateById(id, bookRequestDto, 2L));
+    }
+
+    @Test
+    @DisplayName("Update book by ID without a version keeps the conflict of a concurrent update")
+    void updateById_ConcurrentUpdateWithoutVersion_ThrowsOptimisticLockingFailureException() {
+        // Given
+        String id = "1";
+        BookRequestDto bookRequestDto =
+                new BookRequestDto("Title", "Author", "Category");
+        Book existingBook = Book.builder()
+                .id(id)
+                .title("Old Title")
+                .isDeleted(false)
+                .version(2L)
+                .build();
+
+        when(bookRepository.findById(id)).thenReturn(Optional.of(existingBook));
+        when(bookRepository.save(existingBook))
+                .thenThrow(new OptimisticLockingFailureException("Book has been modified."));
+
+        // When & Then
+        assertThrows(OptimisticLockingFailureException.class,
+                () -> bookService.updateById(id, bookRequestDto, null));
+    }
 }
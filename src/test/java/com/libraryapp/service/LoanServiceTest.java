@@ -2,13 +2,24 @@ package com.libraryapp.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.libraryapp.cache.BookLookupCoalescer;
+import com.libraryapp.cache.LoanCountCache;
+import com.libraryapp.dto.loan.LoanBatchResponseDto;
 import com.libraryapp.dto.loan.LoanRequestDto;
 import com.libraryapp.dto.loan.LoanResponseDto;
+import com.libraryapp.event.BookChangedEvent;
+import com.libraryapp.event.LoanChangedEvent;
 import com.libraryapp.exception.custom.BookAlreadyLoanedException;
 import com.libraryapp.exception.custom.EntityNotFoundException;
+import com.libraryapp.exception.custom.InvalidQueryParameterException;
 import com.libraryapp.exception.custom.LoanAlreadyReturnedException;
 import com.libraryapp.mapper.LoanMapper;
 import com.libraryapp.model.Book;
@@ -16,21 +27,30 @@ import com.libraryapp.model.Loan;
 import com.libraryapp.model.User;
 import com.libraryapp.repository.BookRepository;
 import com.libraryapp.repository.LoanRepository;
+import com.libraryapp.repository.UserRepository;
+import com.libraryapp.repository.support.CursorPage;
 import com.libraryapp.security.util.AuthenticationUtil;
 import com.libraryapp.service.impl.LoanServiceImpl;
 import java.time.LocalDate;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.IntStream;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @ExtendWith(MockitoExtension.class)
 public class LoanServiceTest {
@@ -38,15 +58,30 @@ public class LoanServiceTest {
     @Mock
     private LoanRepository loanRepository;
 
+    @Mock
+    private LoanCountCache loanCountCache;
+
     @Mock
     private BookRepository bookRepository;
 
+    @Mock
+    private BookLookupCoalescer bookLookupCoalescer;
+
+    @Mock
+    private UserRepository userRepository;
+
     @Mock
     private LoanMapper loanMapper;
 
     @Mock
     private AuthenticationUtil authenticationUtil;
 
+    @Mock
+    private ObjectProvider<TransactionTemplate> transactionTemplateProvider;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private LoanServiceImpl loanService;
 
@@ -57,21 +92,83 @@ public class LoanServiceTest {
         Pageable pageable = Pageable.unpaged();
         Loan loan = getDummyLoan();
         LoanResponseDto loanResponseDto = getDummyLoanResponseDto();
-        Page<Loan> loanPage = new PageImpl<>(Collections.singletonList(loan), pageable, 1);
+        Slice<Loan> loanPage = new SliceImpl<>(Collections.singletonList(loan), pageable, false);
 
         when(authenticationUtil.isManager()).thenReturn(true);
-        when(loanRepository.findAllByIsDeletedFalse(pageable)).thenReturn(loanPage);
+        when(loanRepository.findAllByIsDeletedFalse(Set.of(), pageable)).thenReturn(loanPage);
         when(loanMapper.toDto(loan)).thenReturn(loanResponseDto);
 
         // When
-        List<LoanResponseDto> actual = loanService.findAll(pageable);
+        List<LoanResponseDto> actual = loanService.findAll(Set.of(), Set.of(), pageable);
 
         // Then
         assertThat(actual).containsExactly(loanResponseDto);
-        verify(loanRepository).findAllByIsDeletedFalse(pageable);
+        verify(loanRepository).findAllByIsDeletedFalse(Set.of(), pageable);
         verify(loanMapper).toDto(loan);
     }
 
+    @Test
+    @DisplayName("Find all loans expands books and customers with one query each")
+    void findAll_Expanded_QueriesEachCollectionOncePerPage() {
+        // Given
+        final Book book = getDummyBook();
+        User customer = new User();
+        customer.setId("customer1");
+        customer.setIsDeleted(false);
+
+        when(authenticationUtil.isManager()).thenReturn(true);
+        when(bookRepository.findAllById(Set.of("book1"))).thenReturn(List.of(book));
+        when(userRepository.findAllWithoutPasswordByIdIn(Set.of("customer1")))
+                .thenReturn(List.of(customer));
+
+        // When
+        for (int pageSize : new int[] {1, 20}) {
+            Pageable pageable = PageRequest.of(0, pageSize);
+            List<Loan> loans = IntStream.range(0, pageSize)
+                    .mapToObj(i -> getDummyLoan())
+                    .toList();
+            when(loanRepository.findAllByIsDeletedFalse(Set.of(), pageable))
+                    .thenReturn(new SliceImpl<>(loans, pageable, true));
+            loanService.findAll(Set.of(), Set.of("book", "customer"), pageable);
+        }
+
+        // Then
+        verify(bookRepository, times(2)).findAllById(any());
+        verify(userRepository, times(2)).findAllWithoutPasswordByIdIn(any());
+        verify(loanMapper, times(21)).toDto(any(Loan.class), eq(book), eq(customer));
+    }
+
+    @Test
+    @DisplayName("Find all loans reads the reference ids an expansion needs")
+    void findAll_ExpandedWithFields_ReadsBookId() {
+        // Given
+        Pageable pageable = Pageable.unpaged();
+
+        when(authenticationUtil.isManager()).thenReturn(true);
+        when(loanRepository.findAllByIsDeletedFalse(Set.of("id", "bookId"), pageable))
+                .thenReturn(new SliceImpl<>(List.of()));
+
+        // When
+        List<LoanResponseDto> actual =
+                loanService.findAll(Set.of("id"), Set.of("book"), pageable);
+
+        // Then
+        assertThat(actual).isEmpty();
+        verify(bookRepository, never()).findAllById(any());
+    }
+
+    @Test
+    @DisplayName("Find all loans rejects unknown expansions")
+    void findAll_UnknownExpand_ThrowsInvalidQueryParameterException() {
+        // Given
+        Pageable pageable = Pageable.unpaged();
+
+        // When & Then
+        assertThrows(InvalidQueryParameterException.class,
+                () -> loanService.findAll(Set.of(), Set.of("password"), pageable));
+        verify(loanRepository, never()).findAllByIsDeletedFalse(any(), any());
+    }
+
     @Test
     @DisplayName("Find all loans for customer")
     void findAll_ForCustomer_ReturnsListOfLoans() {
@@ -79,23 +176,66 @@ public class LoanServiceTest {
         Pageable pageable = Pageable.unpaged();
         Loan loan = getDummyLoan();
         LoanResponseDto loanResponseDto = getDummyLoanResponseDto();
-        Page<Loan> loanPage = new PageImpl<>(Collections.singletonList(loan), pageable, 1);
+        Slice<Loan> loanPage = new SliceImpl<>(Collections.singletonList(loan), pageable, false);
 
         when(authenticationUtil.isManager()).thenReturn(false);
-        when(authenticationUtil.getCurrentUserFromDb()).thenReturn(getDummyUser());
+        when(authenticationUtil.getCurrentUserId()).thenReturn("customer1");
         when(loanRepository.findAllByCustomerIdAndIsDeletedFalse(
-                "customer1", pageable)).thenReturn(loanPage);
+                "customer1", Set.of(), pageable)).thenReturn(loanPage);
         when(loanMapper.toDto(loan)).thenReturn(loanResponseDto);
 
         // When
-        List<LoanResponseDto> actual = loanService.findAll(pageable);
+        List<LoanResponseDto> actual = loanService.findAll(Set.of(), Set.of(), pageable);
 
         // Then
         assertThat(actual).containsExactly(loanResponseDto);
-        verify(loanRepository).findAllByCustomerIdAndIsDeletedFalse("customer1", pageable);
+        verify(loanRepository)
+                .findAllByCustomerIdAndIsDeletedFalse("customer1", Set.of(), pageable);
         verify(loanMapper).toDto(loan);
     }
 
+    @Test
+    @DisplayName("Find loans by cursor for customer")
+    void findAll_WithCursorForCustomer_ReturnsCustomerPage() {
+        // Given
+        Pageable pageable = PageRequest.of(0, 10);
+        Loan loan = getDummyLoan();
+        LoanResponseDto loanResponseDto = getDummyLoanResponseDto();
+
+        when(authenticationUtil.isManager()).thenReturn(false);
+        when(authenticationUtil.getCurrentUserId()).thenReturn("customer1");
+        when(loanRepository.findAllByCustomerIdAndIsDeletedFalseAfter(
+                "customer1", Set.of(), "cursor", pageable.getSort(), 10))
+                .thenReturn(new CursorPage<>(List.of(loan), "next"));
+        when(loanMapper.toDto(loan)).thenReturn(loanResponseDto);
+
+        // When
+        CursorPage<LoanResponseDto> actual =
+                loanService.findAll(Set.of(), Set.of(), "cursor", pageable);
+
+        // Then
+        assertThat(actual.content()).containsExactly(loanResponseDto);
+        assertThat(actual.nextCursor()).isEqualTo("next");
+        verify(loanRepository, never())
+                .findAllByIsDeletedFalseAfter(any(), any(), any(), anyInt());
+    }
+
+    @Test
+    @DisplayName("Count loans for customer from the cache")
+    void countAll_ForCustomer_ReturnsCachedCustomerCount() {
+        // Given
+        when(authenticationUtil.isManager()).thenReturn(false);
+        when(authenticationUtil.getCurrentUserId()).thenReturn("customer1");
+        when(loanCountCache.countByCustomerId("customer1")).thenReturn(3L);
+
+        // When
+        long actual = loanService.countAll();
+
+        // Then
+        assertThat(actual).isEqualTo(3L);
+        verify(loanCountCache, never()).countAll();
+    }
+
     @Test
     @DisplayName("Find loan by ID")
     void findById_ValidId_ReturnsLoan() {
@@ -108,7 +248,7 @@ public class LoanServiceTest {
         when(authenticationUtil.isManager()).thenReturn(true);
 
         // When
-        LoanResponseDto actual = loanService.findById("1");
+        LoanResponseDto actual = loanService.findById("1", Set.of());
 
         // Then
         assertThat(actual).isEqualTo(loanResponseDto);
@@ -116,6 +256,31 @@ public class LoanServiceTest {
         verify(loanMapper).toDto(loan);
     }
 
+    @Test
+    @DisplayName("Find loans by IDs reports other customers' loans as missing")
+    void findAllById_ForCustomer_HidesForeignLoans() {
+        // Given
+        final Loan loan = getDummyLoan();
+        Loan foreignLoan = getDummyLoan();
+        foreignLoan.setId("2");
+        foreignLoan.setCustomerId("customer2");
+        LoanResponseDto loanResponseDto = getDummyLoanResponseDto();
+
+        when(authenticationUtil.isManager()).thenReturn(false);
+        when(authenticationUtil.getCurrentUserId()).thenReturn("customer1");
+        when(loanRepository.findAllById(List.of("2", "1", "3")))
+                .thenReturn(List.of(loan, foreignLoan));
+        when(loanMapper.toDto(loan)).thenReturn(loanResponseDto);
+
+        // When
+        LoanBatchResponseDto actual = loanService.findAllById(List.of("2", "1", "3"));
+
+        // Then
+        assertThat(actual.loans()).containsExactly(loanResponseDto);
+        assertThat(actual.missingIds()).containsExactly("2", "3");
+        verify(loanMapper, never()).toDto(foreignLoan);
+    }
+
     @Test
     @DisplayName("Find loan by ID for customer")
     void findById_InvalidId_ThrowsException() {
@@ -123,7 +288,7 @@ public class LoanServiceTest {
         when(loanRepository.findById("1")).thenReturn(Optional.empty());
 
         // When & Then
-        assertThrows(EntityNotFoundException.class, () -> loanService.findById("1"));
+        assertThrows(EntityNotFoundException.class, () -> loanService.findById("1", Set.of()));
         verify(loanRepository).findById("1");
     }
 
@@ -132,16 +297,14 @@ public class LoanServiceTest {
     void createLoan_ValidRequest_ReturnsLoan() {
         // Given
         LoanRequestDto loanRequestDto = getDummyLoanRequestDto();
-        Book book = getDummyBook();
         Loan loan = getDummyLoan();
         Loan savedLoan = getDummyLoan();
         LoanResponseDto loanResponseDto = getDummyLoanResponseDto();
 
-        when(bookRepository.findById("book1")).thenReturn(Optional.of(book));
+        when(authenticationUtil.getCurrentUserId()).thenReturn("customer1");
+        when(bookRepository.markBorrowedIfAvailable("book1")).thenReturn(1L);
         when(loanMapper.toEntity(loanRequestDto)).thenReturn(loan);
-        when(authenticationUtil.getCurrentUserFromDb()).thenReturn(getDummyUser());
         when(loanRepository.save(loan)).thenReturn(savedLoan);
-        when(bookRepository.save(book)).thenReturn(book);
         when(loanMapper.toDto(savedLoan)).thenReturn(loanResponseDto);
 
         // When
@@ -149,10 +312,13 @@ public class LoanServiceTest {
 
         // Then
         assertThat(actual).isEqualTo(loanResponseDto);
-        verify(bookRepository).findById("book1");
+        verify(bookRepository).markBorrowedIfAvailable("book1");
+        verify(bookLookupCoalescer, never()).findById("book1");
+        verify(bookRepository, never()).save(any());
         verify(loanRepository).save(loan);
-        verify(bookRepository).save(book);
         verify(loanMapper).toDto(savedLoan);
+        verify(eventPublisher).publishEvent(new BookChangedEvent("book1"));
+        verify(eventPublisher).publishEvent(new LoanChangedEvent("customer1"));
     }
 
     @Test
@@ -161,14 +327,51 @@ public class LoanServiceTest {
         // Given
         Book book = getDummyBook();
         book.setIsBorrowed(true);
-        LoanRequestDto loanRequestDto = getDummyLoanRequestDto();
+        final LoanRequestDto loanRequestDto = getDummyLoanRequestDto();
 
-        when(bookRepository.findById("book1")).thenReturn(Optional.of(book));
+        when(authenticationUtil.getCurrentUserId()).thenReturn("customer1");
+        when(bookRepository.markBorrowedIfAvailable("book1")).thenReturn(0L);
+        when(bookLookupCoalescer.findById("book1")).thenReturn(Optional.of(book));
 
         // When & Then
         assertThrows(BookAlreadyLoanedException.class,
                 () -> loanService.createLoan(loanRequestDto));
-        verify(bookRepository).findById("book1");
+        verify(loanRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("Create loan when book doesn't exist")
+    void createLoan_BookMissing_ThrowsException() {
+        // Given
+        final LoanRequestDto loanRequestDto = getDummyLoanRequestDto();
+
+        when(authenticationUtil.getCurrentUserId()).thenReturn("customer1");
+        when(bookRepository.markBorrowedIfAvailable("book1")).thenReturn(0L);
+        when(bookLookupCoalescer.findById("book1")).thenReturn(Optional.empty());
+
+        // When & Then
+        assertThrows(EntityNotFoundException.class,
+                () -> loanService.createLoan(loanRequestDto));
+        verify(loanRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("Create loan releases the book when the loan can't be saved")
+    void createLoan_LoanSaveFails_ReleasesBook() {
+        // Given
+        LoanRequestDto loanRequestDto = getDummyLoanRequestDto();
+        Loan loan = getDummyLoan();
+
+        when(authenticationUtil.getCurrentUserId()).thenReturn("customer1");
+        when(bookRepository.markBorrowedIfAvailable("book1")).thenReturn(1L);
+        when(loanMapper.toEntity(loanRequestDto)).thenReturn(loan);
+        when(loanRepository.save(loan)).thenThrow(new DataAccessResourceFailureException("down"));
+
+        // When & Then
+        assertThrows(DataAccessResourceFailureException.class,
+                () -> loanService.createLoan(loanRequestDto));
+        verify(bookRepository).markAvailable("book1");
+        verify(eventPublisher, never()).publishEvent(any(LoanChangedEvent.class));
     }
 
     @Test
@@ -176,13 +379,10 @@ public class LoanServiceTest {
     void returnLoan_ValidId_ReturnsLoan() {
         // Given
         Loan loan = getDummyLoan();
-        Book book = getDummyBook();
+        loan.setReturnedDate(LocalDate.now());
         LoanResponseDto loanResponseDto = getDummyLoanResponseDto();
 
-        when(loanRepository.findById("1")).thenReturn(Optional.of(loan));
-        when(bookRepository.findById("book1")).thenReturn(Optional.of(book));
-        when(loanRepository.save(loan)).thenReturn(loan);
-        when(bookRepository.save(book)).thenReturn(book);
+        when(loanRepository.markReturned("1", LocalDate.now())).thenReturn(Optional.of(loan));
         when(loanMapper.toDto(loan)).thenReturn(loanResponseDto);
 
         // When
@@ -190,10 +390,13 @@ public class LoanServiceTest {
 
         // Then
         assertThat(actual).isEqualTo(loanResponseDto);
-        verify(loanRepository).findById("1");
-        verify(bookRepository).findById("book1");
-        verify(loanRepository).save(loan);
-        verify(bookRepository).save(book);
+        verify(loanRepository).markReturned("1", LocalDate.now());
+        verify(bookRepository).markAvailable("book1");
+        verify(eventPublisher).publishEvent(new BookChangedEvent("book1"));
+        verify(eventPublisher).publishEvent(new LoanChangedEvent("customer1"));
+        verify(loanRepository, never()).findById("1");
+        verify(loanRepository, never()).save(any());
+        verify(bookRepository, never()).save(any());
     }
 
     @Test
@@ -203,28 +406,65 @@ public class LoanServiceTest {
         Loan loan = getDummyLoan();
         loan.setReturnedDate(LocalDate.now());
 
+        when(loanRepository.markReturned("1", LocalDate.now())).thenReturn(Optional.empty());
         when(loanRepository.findById("1")).thenReturn(Optional.of(loan));
 
         // When & Then
         assertThrows(LoanAlreadyReturnedException.class, () -> loanService.returnLoan("1"));
-        verify(loanRepository).findById("1");
+        verify(bookRepository, never()).markAvailable(any());
+    }
+
+    @Test
+    @DisplayName("Return loan when loan doesn't exist")
+    void returnLoan_InvalidId_ThrowsException() {
+        // Given
+        when(loanRepository.markReturned("1", LocalDate.now())).thenReturn(Optional.empty());
+        when(loanRepository.findById("1")).thenReturn(Optional.empty());
+
+        // When & Then
+        assertThrows(EntityNotFoundException.class, () -> loanService.returnLoan("1"));
+        verify(bookRepository, never()).markAvailable(any());
     }
 
     @Test
     @DisplayName("Delete loan by ID")
     void deleteById_ValidId_DeletesLoan() {
         // Given
-        Loan loan = getDummyLoan();
+        when(loanRepository.markDeleted("1")).thenReturn(Optional.of(getDummyLoan()));
 
-        when(loanRepository.findById("1")).thenReturn(Optional.of(loan));
-        when(loanRepository.save(loan)).thenReturn(loan);
+        // When
+        loanService.deleteById("1");
+
+        // Then
+        verify(loanRepository).markDeleted("1");
+        verify(loanRepository, never()).findById("1");
+        verify(loanRepository, never()).save(any());
+        verify(eventPublisher).publishEvent(new LoanChangedEvent("customer1"));
+    }
+
+    @Test
+    @DisplayName("Delete an already deleted loan without changing the counts")
+    void deleteById_AlreadyDeleted_DoesNotPublishLoanChange() {
+        // Given
+        Loan loan = getDummyLoan();
+        loan.setIsDeleted(true);
+        when(loanRepository.markDeleted("1")).thenReturn(Optional.of(loan));
 
         // When
         loanService.deleteById("1");
 
         // Then
-        verify(loanRepository).findById("1");
-        verify(loanRepository).save(loan);
+        verify(eventPublisher, never()).publishEvent(any(LoanChangedEvent.class));
+    }
+
+    @Test
+    @DisplayName("Delete loan by invalid ID")
+    void deleteById_InvalidId_ThrowsException() {
+        // Given
+        when(loanRepository.markDeleted("1")).thenReturn(Optional.empty());
+
+        // When & Then
+        assertThrows(EntityNotFoundException.class, () -> loanService.deleteById("1"));
     }
 
     @Test
@@ -241,7 +481,7 @@ public class LoanServiceTest {
         when(loanMapper.toDto(existingLoan)).thenReturn(loanResponseDto);
 
         // When
-        LoanResponseDto actual = loanService.updateById("1", loanRequestDto);
+        LoanResponseDto actual = loanService.updateById("1", loanRequestDto, null);
 
         // Then
         assertThat(actual).isEqualTo(loanResponseDto);
@@ -251,18 +491,6 @@ public class LoanServiceTest {
         verify(loanMapper).toDto(existingLoan);
     }
 
-    private User getDummyUser() {
-        User user = new User();
-        user.setId("customer1");
-        user.setEmail("test@example.com");
-        user.setPassword("password");
-        user.setFirstName("John");
-        user.setLastName("Doe");
-        user.setRole(User.Role.CUSTOMER);
-        user.setIsDeleted(false);
-        return user;
-    }
-
     private Loan getDummyLoan() {
         Loan loan = new Loan();
         loan.setId("1");
@@ -289,6 +517,7 @@ public class LoanServiceTest {
     }
 
     private LoanResponseDto getDummyLoanResponseDto() {
-        return new LoanResponseDto("1", "book1", "customer1", LocalDate.now(), null);
+        return new LoanResponseDto(
+                "1", "book1", "customer1", LocalDate.now(), null, 0L, null, null);
     }
 }
@@ -2,6 +2,8 @@ package com.libraryapp.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
@@ -11,6 +13,7 @@ import com.libraryapp.dto.user.UserRegistrationRequestDto;
 import com.libraryapp.dto.user.UserResponseDto;
 import com.libraryapp.dto.user.UserRoleUpdateRequestDto;
 import com.libraryapp.dto.user.UserUpdateRequestDto;
+import com.libraryapp.event.UserChangedEvent;
 import com.libraryapp.exception.custom.RegistrationException;
 import com.libraryapp.mapper.UserMapper;
 import com.libraryapp.model.User;
@@ -24,6 +27,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
@@ -42,6 +46,9 @@ public class UserServiceTest {
     @Mock
     private AuthenticationUtil authenticationUtil;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private UserServiceImpl userService;
 
@@ -72,6 +79,7 @@ public class UserServiceTest {
         verify(passwordEncoder, times(1)).encode(requestDto.password());
         verify(userRepository, times(1)).save(user);
         verify(userMapper, times(1)).toDto(savedUser);
+        verify(eventPublisher, times(1)).publishEvent(new UserChangedEvent(savedUser));
         verifyNoMoreInteractions(userRepository, userMapper, passwordEncoder);
     }
 
@@ -99,22 +107,21 @@ public class UserServiceTest {
         // Given
         String userId = "1";
         final UserRoleUpdateRequestDto requestDto = new UserRoleUpdateRequestDto(User.Role.MANAGER);
-        User user = getDummyUser();
-        user.setId(userId);
-        user.setRole(User.Role.MANAGER);
         User updatedUser = getDummyUser();
         updatedUser.setId(userId);
         updatedUser.setRole(User.Role.MANAGER);
+        updatedUser.setSecurityVersion(1L);
         UserResponseDto userResponseDto = new UserResponseDto(
-                user.getId(),
-                user.getEmail(),
-                user.getFirstName(),
-                user.getLastName(),
-                User.Role.MANAGER
+                updatedUser.getId(),
+                updatedUser.getEmail(),
+                updatedUser.getFirstName(),
+                updatedUser.getLastName(),
+                User.Role.MANAGER,
+                updatedUser.getVersion()
         );
 
-        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
-        when(userRepository.save(user)).thenReturn(updatedUser);
+        when(userRepository.updateRole(userId, User.Role.MANAGER))
+                .thenReturn(Optional.of(updatedUser));
         when(userMapper.toDto(updatedUser)).thenReturn(userResponseDto);
 
         // When
@@ -122,9 +129,9 @@ public class UserServiceTest {
 
         // Then
         assertThat(actual).isEqualTo(userResponseDto);
-        verify(userRepository, times(1)).findById(userId);
-        verify(userRepository, times(1)).save(user);
+        verify(userRepository, times(1)).updateRole(userId, User.Role.MANAGER);
         verify(userMapper, times(1)).toDto(updatedUser);
+        verify(eventPublisher, times(1)).publishEvent(new UserChangedEvent(updatedUser));
         verifyNoMoreInteractions(userRepository, userMapper);
     }
 
@@ -135,14 +142,14 @@ public class UserServiceTest {
         String userId = "1";
         UserRoleUpdateRequestDto requestDto = new UserRoleUpdateRequestDto(User.Role.MANAGER);
 
-        when(userRepository.findById(userId)).thenReturn(Optional.empty());
+        when(userRepository.updateRole(userId, User.Role.MANAGER)).thenReturn(Optional.empty());
 
         // When
         assertThrows(UsernameNotFoundException.class,
                 () -> userService.setRole(userId, requestDto));
 
         // Then
-        verify(userRepository, times(1)).findById(userId);
+        verify(userRepository, times(1)).updateRole(userId, User.Role.MANAGER);
         verifyNoMoreInteractions(userRepository, userMapper);
     }
 
@@ -154,7 +161,8 @@ public class UserServiceTest {
         user.setId("1");
         UserResponseDto userResponseDto = getDummyUserResponseDto();
 
-        when(authenticationUtil.getCurrentUserFromDb()).thenReturn(user);
+        when(authenticationUtil.getCurrentUserId()).thenReturn("1");
+        when(userRepository.findWithoutPasswordById("1")).thenReturn(Optional.of(user));
         when(userMapper.toDto(user)).thenReturn(userResponseDto);
 
         // When
@@ -162,7 +170,7 @@ public class UserServiceTest {
 
         // Then
         assertThat(actual).isEqualTo(userResponseDto);
-        verify(authenticationUtil, times(1)).getCurrentUserFromDb();
+        verify(authenticationUtil, times(1)).getCurrentUserId();
         verify(userMapper, times(1)).toDto(user);
         verifyNoMoreInteractions(authenticationUtil, userMapper);
     }
@@ -175,13 +183,14 @@ public class UserServiceTest {
         user.setId("1");
         user.setIsDeleted(true);
 
-        when(authenticationUtil.getCurrentUserFromDb()).thenReturn(user);
+        when(authenticationUtil.getCurrentUserId()).thenReturn("1");
+        when(userRepository.findWithoutPasswordById("1")).thenReturn(Optional.of(user));
 
         // When
         assertThrows(UsernameNotFoundException.class, () -> userService.getProfile());
 
         // Then
-        verify(authenticationUtil, times(1)).getCurrentUserFromDb();
+        verify(authenticationUtil, times(1)).getCurrentUserId();
         verifyNoMoreInteractions(authenticationUtil);
     }
 
@@ -192,17 +201,17 @@ public class UserServiceTest {
         String userId = "1";
         User user = getDummyUser();
         user.setId(userId);
-        user.setIsDeleted(false);
+        user.setIsDeleted(true);
+        user.setSecurityVersion(1L);
 
-        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
+        when(userRepository.markDeleted(userId)).thenReturn(Optional.of(user));
 
         // When
         userService.deleteById(userId);
 
         // Then
-        assertThat(user.getIsDeleted()).isTrue();
-        verify(userRepository, times(1)).findById(userId);
-        verify(userRepository, times(1)).save(user);
+        verify(userRepository, times(1)).markDeleted(userId);
+        verify(eventPublisher, times(1)).publishEvent(new UserChangedEvent(user));
         verifyNoMoreInteractions(userRepository);
     }
 
@@ -212,13 +221,13 @@ public class UserServiceTest {
         // Given
         String userId = "1";
 
-        when(userRepository.findById(userId)).thenReturn(Optional.empty());
+        when(userRepository.markDeleted(userId)).thenReturn(Optional.empty());
 
         // When
         assertThrows(UsernameNotFoundException.class, () -> userService.deleteById(userId));
 
         // Then
-        verify(userRepository, times(1)).findById(userId);
+        verify(userRepository, times(1)).markDeleted(userId);
         verifyNoMoreInteractions(userRepository);
     }
 
@@ -238,10 +247,12 @@ public class UserServiceTest {
                 updatedUser.getEmail(),
                 updatedUser.getFirstName(),
                 updatedUser.getLastName(),
-                updatedUser.getRole()
+                updatedUser.getRole(),
+                updatedUser.getVersion()
         );
 
-        when(authenticationUtil.getCurrentUserFromDb()).thenReturn(user);
+        when(authenticationUtil.getCurrentUserId()).thenReturn("1");
+        when(userRepository.findById("1")).thenReturn(Optional.of(user));
         when(userRepository.save(user)).thenReturn(updatedUser);
         when(userMapper.toDto(updatedUser)).thenReturn(userResponseDto);
 
@@ -250,10 +261,12 @@ public class UserServiceTest {
 
         // Then
         assertThat(actual).isEqualTo(userResponseDto);
-        verify(authenticationUtil, times(1)).getCurrentUserFromDb();
+        verify(authenticationUtil, times(1)).getCurrentUserId();
+        verify(userRepository, times(1)).findById("1");
         verify(userRepository, times(1)).save(user);
         verify(userMapper, times(1)).updateUserFromDto(user, requestDto);
         verify(userMapper, times(1)).toDto(updatedUser);
+        verify(eventPublisher, times(1)).publishEvent(new UserChangedEvent(updatedUser));
         verifyNoMoreInteractions(authenticationUtil, userRepository, userMapper);
     }
 
@@ -266,13 +279,15 @@ public class UserServiceTest {
         user.setId("1");
         user.setIsDeleted(true);
 
-        when(authenticationUtil.getCurrentUserFromDb()).thenReturn(user);
+        when(authenticationUtil.getCurrentUserId()).thenReturn("1");
+        when(userRepository.findById("1")).thenReturn(Optional.of(user));
 
         // When
         assertThrows(UsernameNotFoundException.class, () -> userService.updateProfile(requestDto));
 
         // Then
-        verify(authenticationUtil, times(1)).getCurrentUserFromDb();
+        verify(authenticationUtil, times(1)).getCurrentUserId();
+        verify(userRepository, never()).save(any());
         verifyNoMoreInteractions(authenticationUtil);
     }
 
@@ -293,6 +308,7 @@ public class UserServiceTest {
     }
 
     private UserResponseDto getDummyUserResponseDto() {
-        return new UserResponseDto("1", "test@example.com", "John", "Doe", User.Role.CUSTOMER);
+        return new UserResponseDto(
+                "1", "test@example.com", "John", "Doe", User.Role.CUSTOMER, 0L);
     }
 }